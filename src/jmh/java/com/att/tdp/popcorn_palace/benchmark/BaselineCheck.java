@@ -0,0 +1,80 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file against the stored baseline and fails if any benchmark got slower than the
+ * allowed tolerance.
+ * <p>
+ * All benchmarks report average time per operation, so a higher score is a regression. A benchmark only fails
+ * when its score is more than the tolerance above the baseline and the two 99.9% confidence intervals reported by
+ * JMH do not overlap, so a noisy run does not fail on its error bars alone. Benchmarks that are missing from the
+ * baseline are reported but do not fail the check.
+ * </p>
+ * <p>
+ * Usage: {@code BaselineCheck <baseline.json> <result.json> <tolerance>}, e.g. a tolerance of 0.25 allows
+ * results up to 25% slower than the baseline.
+ * </p>
+ */
+public class BaselineCheck {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, Score> baseline = readScores(new File(args[0]));
+        Map<String, Score> current = readScores(new File(args[1]));
+        double tolerance = Double.parseDouble(args[2]);
+
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Score> result : current.entrySet()) {
+            Score score = result.getValue();
+            Score expected = baseline.get(result.getKey());
+            if (expected == null) {
+                System.out.printf("NEW   %-70s %12.2f +/- %.2f ns/op%n", result.getKey(), score.value, score.error);
+                continue;
+            }
+            double change = score.value / expected.value - 1;
+            boolean regressed = change > tolerance && score.value - score.error > expected.value + expected.error;
+            System.out.printf("%-5s %-70s %12.2f +/- %.2f ns/op (baseline %.2f +/- %.2f, %+.0f%%)%n",
+                    regressed ? "SLOW" : "OK", result.getKey(), score.value, score.error, expected.value,
+                    expected.error, change * 100);
+            if (regressed) {
+                regressions.add(result.getKey());
+            }
+        }
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException("Benchmarks slower than baseline by more than "
+                    + Math.round(tolerance * 100) + "% beyond their error bars: " + regressions);
+        }
+    }
+
+    private static Map<String, Score> readScores(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.get("benchmark").asText()
+                    .replace(BaselineCheck.class.getPackageName() + ".", ""));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                params.fields().forEachRemaining(param ->
+                        key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            }
+            JsonNode metric = run.get("primaryMetric");
+            // JMH reports NaN as the error of a single measurement.
+            double error = metric.get("scoreError").asDouble();
+            scores.put(key.toString(), new Score(metric.get("score").asDouble(), Double.isNaN(error) ? 0 : error));
+        }
+        return scores;
+    }
+
+    /**
+     * A benchmark score with the half-width of its confidence interval.
+     */
+    private record Score(double value, double error) {
+    }
+}
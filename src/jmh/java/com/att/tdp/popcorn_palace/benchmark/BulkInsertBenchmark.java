@@ -0,0 +1,145 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.model.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk inserts under the primary key strategies the entities have used, issuing the statements Hibernate sends
+ * for each of them.
+ * <ul>
+ *   <li>{@code identity}: one insert and round trip per row, since the ID is only known after the insert.</li>
+ *   <li>{@code pooled-sequence}: one sequence call per 50 rows, then JDBC batches of 50.</li>
+ *   <li>{@code random-uuid} and {@code uuid-v7}: JDBC batches with random or time-ordered UUID keys.</li>
+ * </ul>
+ * Runs against in-memory H2 by default. Point {@code BENCH_JDBC_URL} (with {@code BENCH_JDBC_USER} and
+ * {@code BENCH_JDBC_PASSWORD}) at PostgreSQL to also print the size of the primary key index after each trial;
+ * environment variables are used because they reach the forked benchmark JVMs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class BulkInsertBenchmark {
+
+    private static final int ROWS_PER_OPERATION = 1000;
+
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"identity", "pooled-sequence", "random-uuid", "uuid-v7"})
+    public String keyStrategy;
+
+    private Connection connection;
+
+    private long seatNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                env("BENCH_JDBC_URL", "jdbc:h2:mem:bench;MODE=PostgreSQL"),
+                env("BENCH_JDBC_USER", "sa"),
+                env("BENCH_JDBC_PASSWORD", ""));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_rows");
+            statement.execute("DROP SEQUENCE IF EXISTS bench_rows_seq");
+            statement.execute(switch (keyStrategy) {
+                case "identity" -> "CREATE TABLE bench_rows (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                        + "seat_number BIGINT, user_id VARCHAR(255))";
+                case "pooled-sequence" -> "CREATE TABLE bench_rows (id BIGINT PRIMARY KEY, "
+                        + "seat_number BIGINT, user_id VARCHAR(255))";
+                default -> "CREATE TABLE bench_rows (id UUID PRIMARY KEY, seat_number BIGINT, user_id VARCHAR(255))";
+            });
+            statement.execute("CREATE SEQUENCE bench_rows_seq START WITH 1 INCREMENT BY " + BATCH_SIZE);
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (connection.getMetaData().getDatabaseProductName().equals("PostgreSQL")) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(
+                         "SELECT count(*), pg_relation_size('bench_rows_pkey') FROM bench_rows")) {
+                result.next();
+                System.out.printf("%n%s: %d rows, primary key index %d bytes (%.1f bytes/row)%n", keyStrategy,
+                        result.getLong(1), result.getLong(2), (double) result.getLong(2) / result.getLong(1));
+            }
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        switch (keyStrategy) {
+            case "identity" -> insertWithIdentity();
+            case "pooled-sequence" -> insertWithPooledSequence();
+            default -> insertWithUuid(keyStrategy.equals("uuid-v7"));
+        }
+        connection.commit();
+    }
+
+    private void insertWithIdentity() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_rows (seat_number, user_id) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS_PER_OPERATION; i++) {
+                insert.setLong(1, seatNumber++);
+                insert.setString(2, "user");
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+    }
+
+    private void insertWithPooledSequence() throws SQLException {
+        try (PreparedStatement nextBlock = connection.prepareStatement("SELECT nextval('bench_rows_seq')");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO bench_rows (id, seat_number, user_id) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ROWS_PER_OPERATION; i += BATCH_SIZE) {
+                long firstId;
+                try (ResultSet block = nextBlock.executeQuery()) {
+                    block.next();
+                    firstId = block.getLong(1);
+                }
+                for (int j = 0; j < BATCH_SIZE; j++) {
+                    insert.setLong(1, firstId + j);
+                    insert.setLong(2, seatNumber++);
+                    insert.setString(3, "user");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private void insertWithUuid(boolean timeOrdered) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_rows (id, seat_number, user_id) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ROWS_PER_OPERATION; i++) {
+                insert.setObject(1, timeOrdered ? UuidV7.next() : UUID.randomUUID());
+                insert.setLong(2, seatNumber++);
+                insert.setString(3, "user");
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+        }
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,67 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.service.TheaterSchedule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Showtime overlap validation for a theater with a growing schedule history: the indexed
+ * {@link TheaterSchedule} against the linear scan it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class OverlapCheckBenchmark {
+
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2020, 1, 1, 10, 0);
+
+    @Param({"100", "10000", "100000"})
+    private int historySize;
+
+    private TheaterSchedule schedule;
+
+    private List<LocalDateTime[]> showtimes;
+
+    @Setup
+    public void setUp() {
+        // Back-to-back two hour showtimes with a one hour break in between.
+        schedule = new TheaterSchedule();
+        showtimes = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            LocalDateTime start = FIRST_START.plusHours(3L * i);
+            LocalDateTime end = start.plusHours(2);
+            schedule.put((long) i, start, end);
+            showtimes.add(new LocalDateTime[]{start, end});
+        }
+    }
+
+    private LocalDateTime randomStart() {
+        return FIRST_START.plusMinutes(ThreadLocalRandom.current().nextLong(180L * historySize));
+    }
+
+    @Benchmark
+    public boolean indexed() {
+        LocalDateTime start = randomStart();
+        return schedule.overlaps(start, start.plusHours(2), null);
+    }
+
+    @Benchmark
+    public boolean linearScan() {
+        LocalDateTime start = randomStart();
+        LocalDateTime end = start.plusHours(2);
+        for (LocalDateTime[] showtime : showtimes) {
+            if (start.isBefore(showtime[1]) && end.isAfter(showtime[0])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,54 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.service.SeatBitmap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seat conflict detection in the in-memory seat map, uncontended and with several threads racing for the
+ * same seats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class SeatConflictBenchmark {
+
+    private static final int SEATS = 256;
+
+    private SeatBitmap seats;
+
+    @Setup
+    public void setUp() {
+        // Half of the seats are booked.
+        seats = new SeatBitmap(1024);
+        for (int seat = 0; seat < SEATS; seat += 2) {
+            seats.claim(seat);
+        }
+    }
+
+    @Benchmark
+    public boolean isTaken() {
+        return seats.isTaken(ThreadLocalRandom.current().nextInt(SEATS));
+    }
+
+    @Benchmark
+    public boolean claimAndRelease() {
+        int seat = ThreadLocalRandom.current().nextInt(SEATS) | 1;
+        boolean claimed = seats.claim(seat);
+        if (claimed) {
+            seats.release(seat);
+        }
+        return claimed;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean claimAndReleaseContended() {
+        return claimAndRelease();
+    }
+}
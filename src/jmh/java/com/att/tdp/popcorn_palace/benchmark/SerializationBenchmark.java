@@ -0,0 +1,81 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.dto.BookingResponse;
+import com.att.tdp.popcorn_palace.dto.ShowtimeResponse;
+import com.att.tdp.popcorn_palace.model.Booking;
+import com.att.tdp.popcorn_palace.model.Movie;
+import com.att.tdp.popcorn_palace.model.Showtime;
+import com.att.tdp.popcorn_palace.model.UuidV7;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the response payloads of the movie, showtime and booking endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Movie movie;
+
+    private ShowtimeResponse showtime;
+
+    private BookingResponse booking;
+
+    @Setup
+    public void setUp() {
+        // Configured like the application's mapper: java.time support and ISO-8601 dates.
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        movie = new Movie();
+        movie.setId(1L);
+        movie.setTitle("Inception");
+        movie.setGenre("Sci-Fi");
+        movie.setDuration(148);
+        movie.setRating(8.8);
+        movie.setReleaseYear(2010);
+
+        Showtime showtimeEntity = new Showtime();
+        showtimeEntity.setId(1L);
+        showtimeEntity.setMovie(movie);
+        showtimeEntity.setTheater("Theater 1");
+        showtimeEntity.setPrice(20.0);
+        showtimeEntity.setStartTime(LocalDateTime.of(2025, 3, 23, 15, 0));
+        showtimeEntity.setEndTime(LocalDateTime.of(2025, 3, 23, 17, 28));
+        showtime = ShowtimeResponse.of(showtimeEntity);
+
+        Booking bookingEntity = new Booking();
+        bookingEntity.setBookingId(UuidV7.next());
+        bookingEntity.setShowtime(showtimeEntity);
+        bookingEntity.setSeatNumber(10);
+        bookingEntity.setUserId("user-123");
+        booking = BookingResponse.of(bookingEntity);
+    }
+
+    @Benchmark
+    public byte[] movie() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] showtime() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(showtime);
+    }
+
+    @Benchmark
+    public byte[] booking() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(booking);
+    }
+}
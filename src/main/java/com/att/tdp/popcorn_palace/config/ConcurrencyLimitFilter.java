@@ -0,0 +1,125 @@
+package com.att.tdp.popcorn_palace.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bulkhead in front of the controllers when requests run on virtual threads.
+ * <p>
+ * With virtual threads there is no thread pool limiting how many requests run at once, so a load spike would
+ * park an unbounded number of requests on the JDBC connection pool until they hit its connection timeout. This
+ * filter caps the number of in-flight requests at a small multiple of the pool size. A request that cannot get a
+ * permit within the wait time is rejected with 503 and a Retry-After header instead of queueing indefinitely.
+ * An asynchronous request, e.g. one returning a StreamingResponseBody, holds its permit until the async cycle
+ * completes rather than until the first dispatch returns. Actuator endpoints are not limited.
+ * </p>
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+
+    private final long maxWaitMillis;
+
+    private final Counter rejections;
+
+    public ConcurrencyLimitFilter(@Value("${popcorn-palace.concurrency.max-in-flight:80}") int maxInFlight,
+                                  @Value("${popcorn-palace.concurrency.max-wait:2s}") Duration maxWait,
+                                  MeterRegistry registry) {
+        this.permits = new Semaphore(maxInFlight);
+        this.maxWaitMillis = maxWait.toMillis();
+        this.rejections = Counter.builder("popcorn.concurrency.rejections")
+                .description("Requests rejected because the in-flight limit was reached")
+                .register(registry);
+        Gauge.builder("popcorn.concurrency.in-flight", permits, p -> maxInFlight - p.availablePermits())
+                .description("Requests currently holding an in-flight permit")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejections.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                permits.release();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // The response is still being produced, e.g. by a StreamingResponseBody; keep the permit until it is.
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Releases the permit of an asynchronous request once it completes, fails or times out.
+     */
+    private record ReleasingAsyncListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Re-register for the next cycle when the request is dispatched and goes async again.
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
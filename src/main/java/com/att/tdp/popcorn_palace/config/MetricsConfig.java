@@ -0,0 +1,21 @@
+package com.att.tdp.popcorn_palace.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics configuration.
+ * <p>
+ * Registers the {@link TimedAspect} so that controllers annotated with {@code @Timed} get a timer per operation.
+ * </p>
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,37 @@
+package com.att.tdp.popcorn_palace.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Logs the method, path, status and latency of every request at DEBUG level as structured fields.
+ */
+@Slf4j
+public class RequestLatencyInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = RequestLatencyInterceptor.class.getName() + ".start";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (log.isDebugEnabled()) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        log.atDebug()
+                .addKeyValue("method", request.getMethod())
+                .addKeyValue("path", request.getRequestURI())
+                .addKeyValue("status", response.getStatus())
+                .addKeyValue("latencyMs", (System.nanoTime() - (Long) start) / 1_000_000.0)
+                .log("Request completed");
+    }
+}
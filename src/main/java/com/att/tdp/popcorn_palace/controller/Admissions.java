@@ -0,0 +1,26 @@
+package com.att.tdp.popcorn_palace.controller;
+
+import com.att.tdp.popcorn_palace.service.AdmissionControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Responses for requests rejected by {@link AdmissionControl}.
+ */
+final class Admissions {
+
+    private Admissions() {
+    }
+
+    /**
+     * @param admission A rejected admission.
+     * @return A 429 Too Many Requests response telling the client when to retry.
+     */
+    static ResponseEntity<String> tooManyRequests(AdmissionControl.Admission admission) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(admission.retryAfterSeconds()))
+                .body("Too many requests for this " + admission.limiter() + "; retry after "
+                        + admission.retryAfterSeconds() + " seconds.");
+    }
+}
@@ -1,17 +1,44 @@
 package com.att.tdp.popcorn_palace.controller;
 
 import com.att.tdp.popcorn_palace.dto.BookingRequest;
+import com.att.tdp.popcorn_palace.dto.BookingResponse;
+import com.att.tdp.popcorn_palace.dto.GroupBookingRequest;
+import com.att.tdp.popcorn_palace.dto.JournaledBooking;
+import com.att.tdp.popcorn_palace.dto.WaitingRoomTicketResponse;
 import com.att.tdp.popcorn_palace.model.Booking;
 import com.att.tdp.popcorn_palace.model.Showtime;
+import com.att.tdp.popcorn_palace.model.UuidV7;
+import com.att.tdp.popcorn_palace.repository.BookingBatchRepository;
 import com.att.tdp.popcorn_palace.repository.BookingRepository;
 import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.service.AdmissionControl;
+import com.att.tdp.popcorn_palace.service.CacheInvalidationBus;
+import com.att.tdp.popcorn_palace.service.PalaceMetrics;
+import com.att.tdp.popcorn_palace.service.SeatBitmap;
+import com.att.tdp.popcorn_palace.service.SeatHold;
+import com.att.tdp.popcorn_palace.service.SeatHoldService;
+import com.att.tdp.popcorn_palace.service.SeatMapRegistry;
+import com.att.tdp.popcorn_palace.service.WaitingRoom;
+import com.att.tdp.popcorn_palace.service.WriteBehindBookingWriter;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
+@Slf4j
+@Timed(value = "popcorn.bookings", histogram = true)
 @RestController
 @RequestMapping("/bookings")
 public class BookingController {
@@ -23,49 +50,411 @@ public class BookingController {
     @Autowired
     private ShowtimeRepository showtimeRepository;
 
+    @Autowired
+    private BookingBatchRepository bookingBatchRepository;
+
+    // In-memory seat occupancy used to reject conflicting bookings before they reach the database.
+    @Autowired
+    private SeatMapRegistry seatMapRegistry;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    // Optional journaled, group-committed write path for bookings admitted by the seat map.
+    @Autowired
+    private WriteBehindBookingWriter writeBehindBookingWriter;
+
+    // Queues booking requests for hot showtimes and books them in sequential batches.
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    // Injecting the CacheInvalidationBus to open and close waiting rooms on the other instances as well.
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    // Sheds excess load per user and per showtime before any repository call.
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private PalaceMetrics metrics;
+
     /**
      * Endpoint to book a ticket for a given showtime.
      * <p>
      * This method handles ticket booking by ensuring:
      * <ul>
+     *   <li>The user and the showtime are within their request rates (otherwise 429 Too Many Requests).</li>
      *   <li>The provided showtime ID exists.</li>
      *   <li>The requested seat is not already booked for that showtime.</li>
      * </ul>
+     * Requests for a showtime with an open waiting room are not booked here; they are queued and answered with
+     * 202 Accepted and a ticket to poll, or 503 Service Unavailable if the showtime's queue is full. If the room
+     * closes before the request is queued, it is booked here after all.
+     * The seat check is answered by the in-memory seat map of the showtime, which atomically claims the seat,
+     * so only the winner of a seat reaches the database.
      * If any condition fails, it returns an appropriate error response.
-     * Otherwise, it creates a new booking and persists it to the database.
+     * Otherwise, it creates a new booking and persists it to the database with a single insert that is
+     * rejected by the unique seat constraint if another instance booked the seat first, or hands it to the
+     * write-behind journal when that is enabled.
      * </p>
      *
      * @param request The booking request payload containing showtimeId, seatNumber, and userId.
-     * @return A ResponseEntity containing either the persisted Booking or an error message.
+     * @return A ResponseEntity containing either the persisted booking or an error message.
      */
     @PostMapping
     public ResponseEntity<?> bookTicket(@Valid @RequestBody BookingRequest request) {
-        // Attempt to retrieve the showtime associated with the given ID.
-        Optional<Showtime> showtimeOpt = showtimeRepository.findById(request.getShowtimeId());
-
+        AdmissionControl.Admission admission =
+                admissionControl.admitBooking(request.getUserId(), request.getShowtimeId(), 1);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
+        // Hot showtimes are booked by their waiting room; the showtime was checked when the room was opened.
+        if (waitingRoom.isOpen(request.getShowtimeId())) {
+            WaitingRoom.Enqueued enqueued =
+                    waitingRoom.enqueue(request.getShowtimeId(), request.getSeatNumber(), request.getUserId());
+            // A room closed in the meantime no longer queues requests, so the seat is booked below instead.
+            if (!enqueued.closed()) {
+                return queued(request, enqueued);
+            }
+        }
         // Validate that the showtime exists.
-        if (showtimeOpt.isEmpty()) {
+        if (!showtimeRepository.existsById(request.getShowtimeId())) {
             // Return a 400 Bad Request if the showtime is not found.
             return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
         }
-        Showtime showtime = showtimeOpt.get();
+        // Only the showtime's ID is needed from here on, so a reference is enough.
+        Showtime showtime = showtimeRepository.getReferenceById(request.getShowtimeId());
 
-        // Check if the seat has already been booked for the retrieved showtime.
-        if (bookingRepository.existsByShowtimeAndSeatNumber(showtime, request.getSeatNumber())) {
+        // Claim the seat in the showtime's seat map; this fails if the seat has already been booked.
+        SeatBitmap seats = seatMapRegistry.forShowtime(showtime.getId());
+        if (!seats.claim(request.getSeatNumber())) {
+            metrics.seatConflictInMemory();
             // Return a 400 Bad Request if the seat is already taken.
             return ResponseEntity.badRequest().body("Seat already booked for this showtime. Please choose another seat.");
         }
 
         // Create a new booking instance and set its properties.
         Booking booking = new Booking();
+        booking.setBookingId(UuidV7.next());
         booking.setShowtime(showtime);
         booking.setSeatNumber(request.getSeatNumber());
         booking.setUserId(request.getUserId());
 
-        // Save the new booking to the database.
-        Booking savedBooking = bookingRepository.save(booking);
+        // Insert the booking in a single statement; the unique seat constraint rejects a seat booked elsewhere.
+        int inserted;
+        try {
+            inserted = insertBooking(booking);
+        } catch (DataIntegrityViolationException e) {
+            // The showtime was deleted after it was checked; drop its seat map again.
+            seats.release(request.getSeatNumber());
+            seatMapRegistry.evict(showtime.getId());
+            return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
+        } catch (RuntimeException e) {
+            seats.release(request.getSeatNumber());
+            throw e;
+        }
+        if (inserted == 0) {
+            // The seat was booked by another instance; it stays claimed in the seat map.
+            metrics.seatConflictInDatabase();
+            return ResponseEntity.badRequest().body("Seat already booked for this showtime. Please choose another seat.");
+        }
+        invalidationBus.seatsTaken(showtime.getId(), List.of(booking.getSeatNumber()));
+
+        log.atDebug()
+                .addKeyValue("showtimeId", showtime.getId())
+                .addKeyValue("seatNumber", booking.getSeatNumber())
+                .addKeyValue("bookingId", booking.getBookingId())
+                .log("Seat booked");
 
         // Return a 200 OK response with the saved booking details.
-        return ResponseEntity.ok(savedBooking);
+        return ResponseEntity.ok(BookingResponse.of(booking));
+    }
+
+    /**
+     * Endpoint to book several seats of a showtime at once, e.g. for a family or group purchase.
+     * <p>
+     * All seats are reserved or none are. The showtime is looked up once, the seats are claimed together in the
+     * showtime's seat map, and the bookings are written in a single transaction as one JDBC batch. If the
+     * database rejects the batch because another instance booked one of the seats, the booked seats are looked
+     * up with one set-based query and reported back. If none of them is booked, the showtime was deleted while
+     * the batch was written and the request is rejected as for an unknown showtime.
+     * </p>
+     *
+     * @param request The group booking payload containing showtimeId, seatNumbers, and userId.
+     * @return A ResponseEntity containing either the persisted bookings or an error message.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> bookTickets(@Valid @RequestBody GroupBookingRequest request) {
+        AdmissionControl.Admission admission = admissionControl.admitBooking(request.getUserId(),
+                request.getShowtimeId(), request.getSeatNumbers().size());
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
+        // Validate that the showtime exists.
+        if (!showtimeRepository.existsById(request.getShowtimeId())) {
+            return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
+        }
+        Showtime showtime = showtimeRepository.getReferenceById(request.getShowtimeId());
+
+        // Reject requests that name the same seat twice.
+        Set<Integer> seatNumbers = new LinkedHashSet<>(request.getSeatNumbers());
+        if (seatNumbers.size() != request.getSeatNumbers().size()) {
+            return ResponseEntity.badRequest().body("Each seat may only be requested once.");
+        }
+
+        // Claim every seat in the seat map, collecting the ones that are already taken.
+        SeatBitmap seats = seatMapRegistry.forShowtime(showtime.getId());
+        List<Integer> claimed = new ArrayList<>();
+        List<Integer> taken = new ArrayList<>();
+        for (Integer seatNumber : seatNumbers) {
+            if (seats.claim(seatNumber)) {
+                claimed.add(seatNumber);
+            } else {
+                taken.add(seatNumber);
+            }
+        }
+        if (!taken.isEmpty()) {
+            metrics.seatConflictInMemory();
+            claimed.forEach(seats::release);
+            return ResponseEntity.badRequest().body("Seats already booked for this showtime: " + taken);
+        }
+
+        // Build one booking per seat.
+        List<Booking> bookings = new ArrayList<>(seatNumbers.size());
+        for (Integer seatNumber : seatNumbers) {
+            Booking booking = new Booking();
+            booking.setBookingId(UuidV7.next());
+            booking.setShowtime(showtime);
+            booking.setSeatNumber(seatNumber);
+            booking.setUserId(request.getUserId());
+            bookings.add(booking);
+        }
+
+        // Insert all bookings atomically, releasing the claimed seats if that fails.
+        try {
+            if (writeBehindBookingWriter.isEnabled()) {
+                writeBehindBookingWriter.write(bookings.stream().map(JournaledBooking::of).toList());
+            } else {
+                bookingBatchRepository.insertAll(bookings);
+            }
+        } catch (DataIntegrityViolationException e) {
+            claimed.forEach(seats::release);
+            // Some seats were booked by another instance; record them in the seat map and report them.
+            List<Integer> booked = bookingRepository.findBookedSeatNumbers(showtime.getId(), seatNumbers);
+            if (!booked.isEmpty()) {
+                metrics.seatConflictInDatabase();
+                booked.forEach(seats::claim);
+                return ResponseEntity.badRequest().body("Seats already booked for this showtime: " + booked);
+            }
+            // No seat is taken, so the showtime was deleted in the meantime; drop its seat map again.
+            if (!showtimeRepository.existsById(showtime.getId())) {
+                seatMapRegistry.evict(showtime.getId());
+                return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            claimed.forEach(seats::release);
+            throw e;
+        }
+        invalidationBus.seatsTaken(showtime.getId(), seatNumbers);
+
+        log.atDebug()
+                .addKeyValue("showtimeId", showtime.getId())
+                .addKeyValue("seatCount", bookings.size())
+                .log("Seats booked");
+
+        // Return a 200 OK response with the saved bookings.
+        return ResponseEntity.ok(bookings.stream().map(BookingResponse::of).toList());
+    }
+
+    /**
+     * Endpoint to hold a seat while the user checks out.
+     * <p>
+     * The seat is taken in the showtime's seat map for the hold's lifetime, so it is rejected by other bookings
+     * and holds, but nothing is written to the database. The hold must be confirmed before it expires.
+     * While a showtime's waiting room is open, its seats are handed out in queue order only, so holds are refused
+     * with 409 Conflict rather than letting them skip the queue.
+     * </p>
+     *
+     * @param request The booking request payload containing showtimeId, seatNumber, and userId.
+     * @return A ResponseEntity containing either the hold or an error message.
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<?> holdSeat(@Valid @RequestBody BookingRequest request) {
+        AdmissionControl.Admission admission =
+                admissionControl.admitBooking(request.getUserId(), request.getShowtimeId(), 1);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
+        if (waitingRoom.isOpen(request.getShowtimeId())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("This showtime's seats are booked through its waiting room. Please book the seat instead.");
+        }
+        if (!showtimeRepository.existsById(request.getShowtimeId())) {
+            return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
+        }
+
+        Optional<SeatHold> hold = seatHoldService.hold(request.getShowtimeId(), request.getSeatNumber(), request.getUserId());
+        if (hold.isEmpty()) {
+            metrics.seatConflictInMemory();
+            return ResponseEntity.badRequest().body("Seat already booked for this showtime. Please choose another seat.");
+        }
+        return ResponseEntity.ok(hold.get());
+    }
+
+    /**
+     * Endpoint to turn a seat hold into a booking.
+     *
+     * @param holdId The ID of the hold.
+     * @return A ResponseEntity containing either the persisted booking or an error message.
+     */
+    @PostMapping("/holds/{holdId}/confirm")
+    public ResponseEntity<?> confirmHold(@PathVariable UUID holdId) {
+        // Take the hold out of the HELD state so that it can no longer expire or be released.
+        Optional<SeatHold> holdOpt = seatHoldService.beginConfirm(holdId);
+        if (holdOpt.isEmpty()) {
+            return ResponseEntity.badRequest().body("Hold does not exist or has expired.");
+        }
+        SeatHold hold = holdOpt.get();
+
+        // The showtime may have been deleted while the seat was held.
+        if (!showtimeRepository.existsById(hold.getShowtimeId())) {
+            seatHoldService.confirmFailed(hold, true);
+            return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
+        }
+
+        Booking booking = new Booking();
+        booking.setBookingId(UuidV7.next());
+        booking.setShowtime(showtimeRepository.getReferenceById(hold.getShowtimeId()));
+        booking.setSeatNumber(hold.getSeatNumber());
+        booking.setUserId(hold.getUserId());
+
+        // The seat is already claimed by the hold; the unique seat constraint still guards other instances.
+        int inserted;
+        try {
+            inserted = insertBooking(booking);
+        } catch (DataIntegrityViolationException e) {
+            // The showtime was deleted after it was checked.
+            seatHoldService.confirmFailed(hold, true);
+            return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
+        } catch (RuntimeException e) {
+            seatHoldService.confirmFailed(hold, true);
+            throw e;
+        }
+        if (inserted == 0) {
+            metrics.seatConflictInDatabase();
+            seatHoldService.confirmFailed(hold, false);
+            return ResponseEntity.badRequest().body("Seat already booked for this showtime. Please choose another seat.");
+        }
+        seatHoldService.confirmed(hold);
+
+        log.atDebug()
+                .addKeyValue("showtimeId", hold.getShowtimeId())
+                .addKeyValue("seatNumber", booking.getSeatNumber())
+                .addKeyValue("bookingId", booking.getBookingId())
+                .log("Seat hold confirmed");
+
+        return ResponseEntity.ok(BookingResponse.of(booking));
+    }
+
+    /**
+     * Endpoint to release a seat hold before it expires.
+     *
+     * @param holdId The ID of the hold.
+     * @return A ResponseEntity with 200 OK if the hold was released, or 404 Not Found if it is no longer held.
+     */
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<?> releaseHold(@PathVariable UUID holdId) {
+        if (!seatHoldService.release(holdId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint to open the waiting room of a hot showtime. From then on, its booking requests are queued and
+     * booked in batches by a single consumer.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @return A ResponseEntity with 200 OK once the waiting room is open, or an error message.
+     */
+    @PutMapping("/waiting-room/{showtimeId}")
+    public ResponseEntity<?> openWaitingRoom(@PathVariable Long showtimeId) {
+        if (!waitingRoom.isEnabled()) {
+            return ResponseEntity.badRequest().body("The waiting room is disabled.");
+        }
+        if (!showtimeRepository.existsById(showtimeId)) {
+            return ResponseEntity.badRequest().body("Invalid showtimeId: Showtime does not exist.");
+        }
+        waitingRoom.open(showtimeId);
+        invalidationBus.waitingRoomOpened(showtimeId);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint to close the waiting room of a showtime. Requests that are already queued are still booked.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @return A ResponseEntity with 200 OK if the waiting room was closed, or 404 Not Found if it was not open.
+     */
+    @DeleteMapping("/waiting-room/{showtimeId}")
+    public ResponseEntity<?> closeWaitingRoom(@PathVariable Long showtimeId) {
+        if (!waitingRoom.close(showtimeId)) {
+            return ResponseEntity.notFound().build();
+        }
+        invalidationBus.waitingRoomClosed(showtimeId);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint to poll a waiting room ticket for its position, estimated wait and, once processed, its outcome.
+     *
+     * @param ticketId The ID of the ticket.
+     * @return A ResponseEntity containing the ticket, or 404 Not Found if it is unknown or has expired.
+     */
+    @GetMapping("/waiting-room/tickets/{ticketId}")
+    public ResponseEntity<?> getWaitingRoomTicket(@PathVariable UUID ticketId) {
+        return waitingRoom.status(ticketId).<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Answer a booking request that went to the waiting room of its showtime.
+     *
+     * @return 202 Accepted with the ticket and its Location, or 503 Service Unavailable with Retry-After if the
+     * queue is full.
+     */
+    private ResponseEntity<?> queued(BookingRequest request, WaitingRoom.Enqueued enqueued) {
+        WaitingRoomTicketResponse ticket = enqueued.ticket();
+        if (ticket == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER,
+                            Long.toString(waitingRoom.estimatedDrainSeconds(request.getShowtimeId())))
+                    .body("The waiting room for this showtime is full. Please try again later.");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/bookings/waiting-room/tickets/" + ticket.ticketId())
+                .body(ticket);
+    }
+
+    /**
+     * Persist a booking whose seat has already been claimed in the seat map.
+     * <p>
+     * With write-behind enabled, this waits only until the booking is durable in the local journal; it reaches
+     * the bookings table with the next group commit.
+     * </p>
+     *
+     * @param booking The booking to persist.
+     * @return 1 if the booking was stored, 0 if the database already holds a booking for the seat.
+     * @throws DataIntegrityViolationException if the showtime no longer exists.
+     */
+    private int insertBooking(Booking booking) {
+        if (writeBehindBookingWriter.isEnabled()) {
+            writeBehindBookingWriter.write(List.of(JournaledBooking.of(booking)));
+            return 1;
+        }
+        return bookingRepository.insertIfSeatFree(booking.getBookingId(), booking.getShowtime().getId(),
+                booking.getSeatNumber(), booking.getUserId());
     }
 }
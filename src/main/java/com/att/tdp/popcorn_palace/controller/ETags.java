@@ -0,0 +1,45 @@
+package com.att.tdp.popcorn_palace.controller;
+
+/**
+ * Helpers for strong entity-tag validators.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @param version The version of a resource.
+     * @return The quoted strong ETag for the version.
+     */
+    static String of(Object version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Evaluate an If-None-Match header against the current ETag, using the weak comparison that RFC 9110
+     * prescribes for If-None-Match.
+     *
+     * @param ifNoneMatch The If-None-Match request header, or null.
+     * @param etag        The current quoted ETag.
+     * @return true if the client's copy is current and a 304 Not Modified may be sent.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
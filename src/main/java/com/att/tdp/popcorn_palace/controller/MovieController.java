@@ -1,19 +1,53 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.dto.MovieImportReport;
+import com.att.tdp.popcorn_palace.dto.MoviePage;
 import com.att.tdp.popcorn_palace.model.Movie;
 import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.service.CacheInvalidationBus;
+import com.att.tdp.popcorn_palace.service.MovieCache;
+import com.att.tdp.popcorn_palace.service.MovieImporter;
+import com.att.tdp.popcorn_palace.service.VersionCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+@Slf4j
+@Timed(value = "popcorn.movies", histogram = true)
 @RestController
 @RequestMapping("/movies")
 public class MovieController {
 
+    // Largest page size accepted by the paginated listing.
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     /**
      * Simple greeting endpoint.
      *
@@ -28,19 +62,103 @@ public class MovieController {
     @Autowired
     private MovieRepository movieRepository;
 
+    // Read cache for movie lookups by title; must be invalidated whenever a movie changes.
+    @Autowired
+    private MovieCache movieCache;
+
+    // Used to detach streamed movies so the persistence context does not grow with the catalog.
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MovieImporter movieImporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Caches the catalog ETag so conditional GETs of the full listing skip the database.
+    @Autowired
+    private VersionCache versionCache;
+
+    // Tells other instances to evict changed movies from their caches.
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
     /**
      * Retrieve all movies from the database.
      *
-     * @return A ResponseEntity containing a list of movies.
+     * <p>
+     * The response carries the catalog version as its ETag. The version is raised after every movie write, so it
+     * changes whenever a movie is added, updated or deleted, and never repeats. A request whose If-None-Match
+     * matches it is answered with 304 Not Modified without reading the catalog.
+     * </p>
+     *
+     * @param ifNoneMatch The ETags of the copies the client already has, if any.
+     * @return A ResponseEntity containing a list of movies, or 304 Not Modified if the client's copy is current.
      */
     @GetMapping("/all")
-    public ResponseEntity<List<Movie>> getAllMovies() {
-        List<Movie> movies = movieRepository.findAll();
-        // Log each movie for debugging purposes.
-        for (Movie m : movies) {
-            System.out.println(m);
+    public ResponseEntity<List<Movie>> getAllMovies(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = ETags.of(versionCache.movieCatalogVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<Movie> movies = movieRepository.findAll(Sort.by("id"));
+        log.atDebug().addKeyValue("count", movies.size()).log("Listed all movies");
+        return ResponseEntity.ok().eTag(etag).body(movies);
+    }
+
+    /**
+     * Retrieve one page of the movie catalog using keyset pagination on the movie ID.
+     *
+     * @param after The ID of the last movie of the previous page, or null for the first page.
+     * @param limit The maximum number of movies to return (1-1000).
+     * @return A ResponseEntity containing the page and the cursor of the next page.
+     */
+    @GetMapping
+    public ResponseEntity<?> getMoviePage(@RequestParam(required = false) Long after,
+                                          @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
         }
-        return ResponseEntity.ok(movies);
+        List<Movie> movies = movieRepository.findByIdGreaterThanOrderByIdAsc(after == null ? Long.MIN_VALUE : after,
+                Limit.of(limit));
+        Long nextCursor = movies.size() < limit ? null : movies.get(movies.size() - 1).getId();
+        return ResponseEntity.ok(new MoviePage(movies, nextCursor));
+    }
+
+    /**
+     * Stream the whole movie catalog as newline-delimited JSON.
+     *
+     * <p>
+     * Movies are read through a database cursor and written one per line as they arrive, and each one is
+     * detached after it is written, so memory use does not depend on the size of the catalog.
+     * </p>
+     *
+     * @return A ResponseEntity streaming one JSON movie per line.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamMovies() {
+        ObjectWriter writer = objectMapper.writerFor(Movie.class);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        StreamingResponseBody body = out -> transaction.executeWithoutResult(status -> {
+            try (Stream<Movie> movies = movieRepository.streamAll()) {
+                movies.forEach(movie -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(movie));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    entityManager.detach(movie);
+                });
+            }
+        });
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
     }
 
     /**
@@ -52,37 +170,91 @@ public class MovieController {
     @PostMapping
     public ResponseEntity<?> addMovie(@Valid @RequestBody Movie movie) {
         // Save the new movie to the database.
-        Optional<Movie> movieOpt = movieRepository.findByTitle(movie.getTitle());
+        Optional<Movie> movieOpt = movieCache.findByTitle(movie.getTitle());
         if (movieOpt.isPresent()) {
             return ResponseEntity.badRequest()
                     .body("movie with title " + movie.getTitle() + " already exists");
 
         }
         Movie savedMovie = movieRepository.save(movie);
+        movieCache.put(savedMovie);
+        versionCache.bumpMovieCatalog();
+        invalidationBus.movieChanged(savedMovie.getId());
 
-        System.out.println("Saved movie: " + savedMovie);
+        log.atInfo()
+                .addKeyValue("movieId", savedMovie.getId())
+                .addKeyValue("title", savedMovie.getTitle())
+                .log("Movie added");
         return ResponseEntity.ok(savedMovie);
     }
 
+    /**
+     * Import a movie catalog from a CSV body with a header row (title, genre, duration, rating, releaseYear).
+     *
+     * <p>
+     * The body is streamed and written in batches, so files of any size can be imported. Rows whose title
+     * already exists are skipped, and invalid rows are reported by line number without stopping the import.
+     * </p>
+     *
+     * @param body The UTF-8 encoded CSV request body.
+     * @return A ResponseEntity containing the import report, or a 400 Bad Request if the header is invalid.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importMoviesCsv(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(movieImporter.importCsv(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } finally {
+            // Rows written before a failure are committed as well.
+            versionCache.bumpMovieCatalog();
+            invalidationBus.movieChanged(null);
+        }
+    }
+
+    /**
+     * Import a movie catalog from a newline-delimited JSON body, one movie per line.
+     *
+     * @param body The UTF-8 encoded NDJSON request body.
+     * @return A ResponseEntity containing the import report.
+     * @throws IOException if the request body cannot be read.
+     * @see #importMoviesCsv(InputStream)
+     */
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<MovieImportReport> importMoviesNdjson(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(movieImporter.importNdjson(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        } finally {
+            versionCache.bumpMovieCatalog();
+            invalidationBus.movieChanged(null);
+        }
+    }
+
     /**
      * Update an existing movie based on its title.
      *
      * <p>
      * This endpoint searches for a movie using the provided title.
      * If found, it updates the movie's details with the values from the request.
-     * If not found, it returns a 404 Not Found response.
+     * If not found, it returns a 404 Not Found response. If the movie was changed concurrently since it was
+     * read, a 409 Conflict is returned and the request can be retried.
      * </p>
      *
      * @param movieTitle   The title of the movie to be updated.
      * @param updatedMovie The movie details to be updated, validated against constraints.
-     * @return A ResponseEntity containing the updated movie if found, or a 404 response if not.
+     * @return A ResponseEntity containing the updated movie if found, a 404 response if not, or a 409 response
+     * on a concurrent update.
      */
     @PostMapping("/update/{movieTitle}")
     public ResponseEntity<Movie> updateMovie(@PathVariable String movieTitle, @Valid @RequestBody Movie updatedMovie) {
         // Find the movie by its title.
-        Optional<Movie> movieOpt = movieRepository.findByTitle(movieTitle);
+        Optional<Movie> movieOpt = movieCache.findByTitle(movieTitle);
         if (movieOpt.isPresent()) {
+            // The cache hands out copies, so other readers do not see these changes before they are saved.
             Movie movie = movieOpt.get();
+            // Evict the movie under its current ID and title before it changes.
+            movieCache.evict(movie);
             // Update movie details
             movie.setTitle(updatedMovie.getTitle());
             movie.setGenre(updatedMovie.getGenre());
@@ -90,7 +262,16 @@ public class MovieController {
             movie.setRating(updatedMovie.getRating());
             movie.setReleaseYear(updatedMovie.getReleaseYear());
             // Save the updated movie back to the database.
-            Movie savedMovie = movieRepository.save(movie);
+            Movie savedMovie;
+            try {
+                savedMovie = movieRepository.save(movie);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // The cached copy was stale; it has already been evicted, so a retry reads the current row.
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            versionCache.bumpMovieCatalog();
+            movieCache.put(savedMovie);
+            invalidationBus.movieChanged(savedMovie.getId());
             return ResponseEntity.ok(savedMovie);
         }
         // If the movie is not found, return a 404 Not Found response.
@@ -102,19 +283,30 @@ public class MovieController {
      *
      * <p>
      * This endpoint searches for a movie by its title. If the movie exists, it is deleted from the database.
-     * If not found, a 404 Not Found response is returned.
+     * If not found, a 404 Not Found response is returned. If the movie was changed concurrently since it was
+     * read, a 409 Conflict is returned and the request can be retried.
      * </p>
      *
      * @param movieTitle The title of the movie to be deleted.
-     * @return A ResponseEntity with status 200 OK if deletion is successful, or 404 if not found.
+     * @return A ResponseEntity with status 200 OK if deletion is successful, 404 if not found, or 409 on a
+     * concurrent update.
      */
     @DeleteMapping("/{movieTitle}")
     public ResponseEntity<Void> deleteMovie(@PathVariable String movieTitle) {
         // Find the movie by its title.
-        Optional<Movie> movieOpt = movieRepository.findByTitle(movieTitle);
+        Optional<Movie> movieOpt = movieCache.findByTitle(movieTitle);
         if (movieOpt.isPresent()) {
+            // Evict the movie first, so that a retry after a conflict reads the current row.
+            movieCache.evict(movieOpt.get());
             // Delete the found movie.
-            movieRepository.delete(movieOpt.get());
+            try {
+                movieRepository.delete(movieOpt.get());
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // The cached copy was stale, i.e. the movie was updated or deleted in the meantime.
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            versionCache.bumpMovieCatalog();
+            invalidationBus.movieChanged(movieOpt.get().getId());
             return ResponseEntity.ok().build();
         }
         // Return 404 Not Found if no movie matches the provided title.
@@ -1,54 +1,125 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.dto.SeatMapResponse;
+import com.att.tdp.popcorn_palace.dto.ShowtimeBatchRequest;
+import com.att.tdp.popcorn_palace.dto.ShowtimeCursor;
+import com.att.tdp.popcorn_palace.dto.ShowtimePage;
 import com.att.tdp.popcorn_palace.dto.ShowtimeRequest;
+import com.att.tdp.popcorn_palace.dto.ShowtimeResponse;
 import com.att.tdp.popcorn_palace.model.Movie;
 import com.att.tdp.popcorn_palace.model.Showtime;
-import com.att.tdp.popcorn_palace.repository.MovieRepository;
 import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.service.AdmissionControl;
+import com.att.tdp.popcorn_palace.service.CacheInvalidationBus;
+import com.att.tdp.popcorn_palace.service.MovieCache;
+import com.att.tdp.popcorn_palace.service.PalaceMetrics;
+import com.att.tdp.popcorn_palace.service.SeatBitmap;
+import com.att.tdp.popcorn_palace.service.SeatMapRegistry;
+import com.att.tdp.popcorn_palace.service.ShowtimeBatchValidator;
+import com.att.tdp.popcorn_palace.service.ShowtimeScheduleIndex;
+import com.att.tdp.popcorn_palace.service.VersionCache;
+import com.att.tdp.popcorn_palace.service.WaitingRoom;
+import com.att.tdp.popcorn_palace.service.WriteBehindBookingWriter;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+@Slf4j
+@Timed(value = "popcorn.showtimes", histogram = true)
 @RestController
 @RequestMapping("/showtimes")
 public class ShowtimeController {
 
+    // Largest page size accepted by the showtime search.
+    private static final int MAX_PAGE_SIZE = 1000;
+
     // Injecting the ShowtimeRepository to interact with showtime data
     @Autowired
     private ShowtimeRepository showtimeRepository;
 
-    // Injecting the MovieRepository to validate and fetch associated movie details
+    // Injecting the MovieCache to validate and fetch associated movie details
+    @Autowired
+    private MovieCache movieCache;
+
+    // Injecting the SeatMapRegistry to serve seat availability and drop seat maps of deleted showtimes
+    @Autowired
+    private SeatMapRegistry seatMapRegistry;
+
+    // Injecting the ShowtimeScheduleIndex to validate overlaps without scanning a theater's full history
+    @Autowired
+    private ShowtimeScheduleIndex scheduleIndex;
+
+    // Injecting the ShowtimeBatchValidator to check a whole batch of showtimes in one sweep per theater
+    @Autowired
+    private ShowtimeBatchValidator batchValidator;
+
+    // Injecting the VersionCache to answer conditional GETs without a database lookup
+    @Autowired
+    private VersionCache versionCache;
+
+    // Injecting the CacheInvalidationBus to let other instances evict what they cached about changed showtimes
     @Autowired
-    private MovieRepository movieRepository;
+    private CacheInvalidationBus invalidationBus;
+
+    // Injecting the WaitingRoom to reject the queued requests of deleted showtimes
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    // Injecting the WriteBehindBookingWriter to write a showtime's journaled bookings before the showtime is deleted
+    @Autowired
+    private WriteBehindBookingWriter writeBehindBookingWriter;
+
+    // Injecting the AdmissionControl to shed showtime polling and schedule writes before they reach the database
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private PalaceMetrics metrics;
 
     /**
      * Add a new showtime while validating that it does not overlap with any existing showtime in the same theater.
+     * The overlap check is answered by the in-memory schedule index of the theater.
      *
      * @param request The showtime request payload, which includes movieId, theater, price, startTime, and endTime.
      * @return A ResponseEntity containing the saved showtime or an error message if validation fails.
      */
     @PostMapping
     public ResponseEntity<?> addShowtime(@Valid @RequestBody ShowtimeRequest request) {
+        AdmissionControl.Admission admission = admissionControl.admitScheduleWrite(1);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
         // Retrieve the movie associated with the provided movieId
-        Optional<Movie> movieOpt = movieRepository.findById(request.getMovieId());
+        Optional<Movie> movieOpt = movieCache.findById(request.getMovieId());
         if (movieOpt.isEmpty()) {
             return ResponseEntity.badRequest().body("Invalid movieId");
         }
 
+        if (scheduleIndex.exceedsMaxDuration(request.getStartTime(), request.getEndTime())) {
+            return ResponseEntity.badRequest()
+                    .body("A showtime cannot be longer than " + scheduleIndex.getMaxDuration() + ".");
+        }
+
         // Validate that the new showtime does not overlap with any existing showtimes in the same theater
-        List<Showtime> existingShowtimes = showtimeRepository.findByTheater(request.getTheater());
-        for (Showtime s : existingShowtimes) {
-            if (request.getStartTime().isBefore(s.getEndTime()) &&
-                    request.getEndTime().isAfter(s.getStartTime())) {
-                return ResponseEntity.badRequest()
-                        .body("Showtime overlaps with an existing showtime in the same theater.");
-            }
+        if (scheduleIndex.overlaps(request.getTheater(), request.getStartTime(), request.getEndTime(), null)) {
+            metrics.overlapRejected();
+            return ResponseEntity.badRequest()
+                    .body("Showtime overlaps with an existing showtime in the same theater.");
         }
 
         // Create and populate a new Showtime instance once there is no obstacle to create new one
@@ -61,24 +132,190 @@ public class ShowtimeController {
 
         // Persist the new showtime in the repository
         Showtime savedShowtime = showtimeRepository.save(showtime);
-        System.out.println("Current showtime added: " + savedShowtime);
-        return ResponseEntity.ok(savedShowtime);
+        scheduleIndex.add(savedShowtime);
+        invalidationBus.showtimeChanged(savedShowtime.getId(), savedShowtime.getTheater());
+        log.atInfo()
+                .addKeyValue("showtimeId", savedShowtime.getId())
+                .addKeyValue("theater", savedShowtime.getTheater())
+                .addKeyValue("movieId", request.getMovieId())
+                .log("Showtime added");
+        return versioned(ShowtimeResponse.of(savedShowtime));
+    }
+
+    /**
+     * Add a batch of showtimes, e.g. a week of programming, all or nothing.
+     *
+     * <p>
+     * Overlaps within the batch and with existing showtimes are found in one sorted sweep per theater, and the
+     * showtimes are then saved together, which Hibernate sends as batched inserts. If any showtime is invalid,
+     * nothing is saved and every problem found is reported.
+     * </p>
+     *
+     * @param request The showtimes to add.
+     * @return A ResponseEntity containing the saved showtimes in request order, or the list of errors.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> addShowtimes(@Valid @RequestBody ShowtimeBatchRequest request) {
+        List<ShowtimeRequest> requests = request.getShowtimes();
+        AdmissionControl.Admission admission = admissionControl.admitScheduleWrite(requests.size());
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
+
+        // Resolve each distinct movie once
+        Map<Long, Optional<Movie>> movies = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (movies.computeIfAbsent(requests.get(i).getMovieId(), movieCache::findById).isEmpty()) {
+                errors.add("showtimes[" + i + "]: Invalid movieId");
+            }
+        }
+
+        // Validate overlaps within the batch and against existing showtimes
+        List<String> conflicts = batchValidator.findConflicts(requests);
+        if (!conflicts.isEmpty()) {
+            metrics.overlapRejected();
+            errors.addAll(conflicts);
+        }
+        if (!errors.isEmpty()) {
+            return ResponseEntity.badRequest().body(errors);
+        }
+
+        List<Showtime> showtimes = new ArrayList<>(requests.size());
+        for (ShowtimeRequest showtimeRequest : requests) {
+            Showtime showtime = new Showtime();
+            showtime.setMovie(movies.get(showtimeRequest.getMovieId()).orElseThrow());
+            showtime.setPrice(showtimeRequest.getPrice());
+            showtime.setTheater(showtimeRequest.getTheater());
+            showtime.setStartTime(showtimeRequest.getStartTime());
+            showtime.setEndTime(showtimeRequest.getEndTime());
+            showtimes.add(showtime);
+        }
+
+        // Persist all showtimes in one transaction
+        List<Showtime> savedShowtimes = showtimeRepository.saveAll(showtimes);
+        savedShowtimes.forEach(scheduleIndex::add);
+        savedShowtimes.forEach(showtime -> versionCache.putShowtime(showtime.getId(), showtime.getVersion()));
+        savedShowtimes.stream().map(Showtime::getTheater).distinct()
+                .forEach(theater -> invalidationBus.showtimeChanged(null, theater));
+        log.atInfo()
+                .addKeyValue("count", savedShowtimes.size())
+                .log("Showtimes added");
+        return ResponseEntity.ok(savedShowtimes.stream().map(ShowtimeResponse::of).toList());
+    }
+
+    /**
+     * Search showtimes by movie, theater and start time window, ordered by start time, then ID.
+     *
+     * <p>
+     * All filters are optional and combined with AND. Results are paginated with a keyset cursor on
+     * (startTime, id), so each page is a single indexed range query however deep it is.
+     * </p>
+     *
+     * @param movieId The movie of the showtimes, or null for all movies.
+     * @param theater The theater of the showtimes, or null for all theaters.
+     * @param from    The earliest start time (inclusive, ISO-8601), or null.
+     * @param to      The latest start time (exclusive, ISO-8601), or null.
+     * @param cursor  The {@code nextCursor} of the previous page, or null for the first page.
+     * @param limit   The maximum number of showtimes to return (1-1000).
+     * @return A ResponseEntity containing the page and the cursor of the next page, or a 400 Bad Request if the
+     * parameters are invalid.
+     */
+    @GetMapping
+    public ResponseEntity<?> searchShowtimes(@RequestParam(required = false) Long movieId,
+                                             @RequestParam(required = false) String theater,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            return ResponseEntity.badRequest().body("from must be before to");
+        }
+        ShowtimeCursor after;
+        try {
+            after = cursor == null ? null : ShowtimeCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        List<ShowtimeResponse> showtimes = showtimeRepository.search(movieId, theater, from, to, after, limit);
+        String nextCursor = showtimes.size() < limit
+                ? null
+                : ShowtimeCursor.after(showtimes.get(showtimes.size() - 1)).encode();
+        return ResponseEntity.ok(new ShowtimePage(showtimes, nextCursor));
     }
 
     /**
      * Retrieve a showtime by its ID.
+     * The response is read with a single projection query, without loading the showtime entity or its movie.
      *
-     * @param showtimeId The unique identifier of the showtime.
-     * @return A ResponseEntity containing the showtime if found, or a 404 Not Found response if it does not exist.
+     * <p>
+     * The showtime's version is sent as a strong ETag. A request whose If-None-Match matches the version last
+     * seen by this instance is answered with 304 Not Modified without a database lookup; otherwise the showtime
+     * is read and a matching If-None-Match still yields a 304 without a body.
+     * </p>
+     *
+     * @param showtimeId  The unique identifier of the showtime.
+     * @param ifNoneMatch The ETags of the copies the client already has, if any.
+     * @return A ResponseEntity containing the showtime if found, 304 Not Modified if the client's copy is
+     * current, a 404 Not Found response if it does not exist, or a 429 Too Many Requests response if the showtime
+     * is read too often.
      */
     @GetMapping("/{showtimeId}")
-    public ResponseEntity<?> getShowtime(@PathVariable Long showtimeId) {
-        Optional<Showtime> showtimeOpt = showtimeRepository.findById(showtimeId);
-        System.out.println("Retrieved showtime: " + showtimeOpt);
-        return showtimeOpt.map(ResponseEntity::ok)
+    public ResponseEntity<?> getShowtime(@PathVariable Long showtimeId,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Revalidate against the cached version first
+        Optional<Long> cachedVersion = versionCache.showtimeVersion(showtimeId);
+        if (cachedVersion.isPresent() && ETags.matches(ifNoneMatch, ETags.of(cachedVersion.get()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(cachedVersion.get())).build();
+        }
+        AdmissionControl.Admission admission = admissionControl.admitShowtimeRead(showtimeId);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
+
+        Optional<ShowtimeResponse> showtimeOpt = showtimeRepository.findResponseById(showtimeId);
+        log.atDebug()
+                .addKeyValue("showtimeId", showtimeId)
+                .addKeyValue("found", showtimeOpt.isPresent())
+                .log("Showtime retrieved");
+        // Spring answers a matching If-None-Match with 304 Not Modified
+        return showtimeOpt.<ResponseEntity<?>>map(this::versioned)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Retrieve the seat availability of a showtime as a compact occupancy bitmap.
+     *
+     * <p>
+     * The bitmap is a snapshot of the showtime's in-memory seat map, which is updated on every booking, so
+     * the bookings table is only read the first time a showtime's seats are needed. Reads are rate limited per
+     * showtime, together with reads of the showtime itself and separately from its bookings.
+     * </p>
+     *
+     * @param showtimeId The unique identifier of the showtime.
+     * @return A ResponseEntity containing the seat map, a 404 Not Found response if the showtime does not exist,
+     * or a 429 Too Many Requests response if the showtime is read too often.
+     */
+    @GetMapping("/{showtimeId}/seats")
+    public ResponseEntity<?> getSeatMap(@PathVariable Long showtimeId) {
+        AdmissionControl.Admission admission = admissionControl.admitShowtimeRead(showtimeId);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
+        // Seat maps are only created for existing showtimes, so the existence check is needed on first access only
+        Optional<SeatBitmap> loaded = seatMapRegistry.findLoaded(showtimeId);
+        if (loaded.isEmpty() && !showtimeRepository.existsById(showtimeId)) {
+            return ResponseEntity.notFound().build();
+        }
+        SeatBitmap seats = loaded.orElseGet(() -> seatMapRegistry.forShowtime(showtimeId));
+        return ResponseEntity.ok(new SeatMapResponse(showtimeId, seats.getCapacity(), seats.takenCount(),
+                Base64.getEncoder().encodeToString(seats.toByteArray()), seats.overflowSeats()));
+    }
+
     /**
      * Update an existing showtime by its ID while ensuring there is no overlapping with other showtimes.
      *
@@ -88,25 +325,30 @@ public class ShowtimeController {
      */
     @PostMapping("/update/{showtimeId}")
     public ResponseEntity<?> updateShowtime(@PathVariable Long showtimeId, @Valid @RequestBody ShowtimeRequest request) {
+        AdmissionControl.Admission admission = admissionControl.admitScheduleWrite(1);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
         // Fetch the current showtime to update
         Optional<Showtime> showtimeOpt = showtimeRepository.findById(showtimeId);
         if (showtimeOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
+        if (scheduleIndex.exceedsMaxDuration(request.getStartTime(), request.getEndTime())) {
+            return ResponseEntity.badRequest()
+                    .body("A showtime cannot be longer than " + scheduleIndex.getMaxDuration() + ".");
+        }
+
         // Validate that the new timings do not overlap with other showtimes in the same theater (excluding the current showtime)
-        List<Showtime> existingShowtimes = showtimeRepository.findByTheater(request.getTheater());
-        for (Showtime s : existingShowtimes) {
-            if (!s.getId().equals(showtimeId) &&
-                    request.getStartTime().isBefore(s.getEndTime()) &&
-                    request.getEndTime().isAfter(s.getStartTime())) {
-                return ResponseEntity.badRequest()
-                        .body("Showtime overlaps with an existing showtime in the same theater.");
-            }
+        if (scheduleIndex.overlaps(request.getTheater(), request.getStartTime(), request.getEndTime(), showtimeId)) {
+            metrics.overlapRejected();
+            return ResponseEntity.badRequest()
+                    .body("Showtime overlaps with an existing showtime in the same theater.");
         }
 
         // Validate the provided movieId by fetching the corresponding Movie
-        Optional<Movie> movieOpt = movieRepository.findById(request.getMovieId());
+        Optional<Movie> movieOpt = movieCache.findById(request.getMovieId());
         if (movieOpt.isEmpty()) {
             return ResponseEntity.badRequest().body("Invalid movieId");
         }
@@ -121,8 +363,16 @@ public class ShowtimeController {
 
         // Persist the updated showtime in the repository
         Showtime updatedShowtime = showtimeRepository.save(showtime);
-        System.out.println("Updated showtime: " + updatedShowtime);
-        return ResponseEntity.ok(updatedShowtime);
+        // The showtime may have moved to another theater, so drop its old slot before recording the new one
+        scheduleIndex.remove(showtimeId);
+        scheduleIndex.add(updatedShowtime);
+        invalidationBus.showtimeChanged(showtimeId, updatedShowtime.getTheater());
+        log.atInfo()
+                .addKeyValue("showtimeId", showtimeId)
+                .addKeyValue("theater", updatedShowtime.getTheater())
+                .addKeyValue("movieId", request.getMovieId())
+                .log("Showtime updated");
+        return versioned(ShowtimeResponse.of(updatedShowtime));
     }
 
     /**
@@ -133,12 +383,24 @@ public class ShowtimeController {
      */
     @DeleteMapping("/{showtimeId}")
     public ResponseEntity<?> deleteShowtime(@PathVariable Long showtimeId) {
+        AdmissionControl.Admission admission = admissionControl.admitScheduleWrite(1);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
         // Check if the showtime exists before attempting deletion
         if (!showtimeRepository.existsById(showtimeId)) {
             return ResponseEntity.notFound().build();
         }
-        System.out.println("Deleting showtime with ID: " + showtimeId);
+        log.atInfo().addKeyValue("showtimeId", showtimeId).log("Deleting showtime");
+        // Queued requests are rejected, and acknowledged bookings still in the write-behind journal must reach the
+        // table first; bookings submitted after that are rejected by the writer.
+        waitingRoom.discard(showtimeId);
+        writeBehindBookingWriter.retireShowtime(showtimeId).join();
         showtimeRepository.deleteById(showtimeId);
+        seatMapRegistry.evict(showtimeId);
+        scheduleIndex.remove(showtimeId);
+        versionCache.evictShowtime(showtimeId);
+        invalidationBus.showtimeDeleted(showtimeId);
         return ResponseEntity.ok().build();
     }
 
@@ -160,6 +422,10 @@ public class ShowtimeController {
             @RequestParam String movieTitle,
             @RequestParam String theater,
             @RequestParam String startTime) {
+        AdmissionControl.Admission admission = admissionControl.admitScheduleWrite(1);
+        if (!admission.admitted()) {
+            return Admissions.tooManyRequests(admission);
+        }
 
         // Attempt to parse the startTime string into a LocalDateTime object
         LocalDateTime parsedStartTime;
@@ -171,7 +437,7 @@ public class ShowtimeController {
         }
 
         // Find the movie by its title to ensure it exists
-        Optional<Movie> movieOpt = movieRepository.findByTitle(movieTitle);
+        Optional<Movie> movieOpt = movieCache.findByTitle(movieTitle);
         if (movieOpt.isEmpty()) {
             return ResponseEntity.badRequest().body("Movie not found for given title");
         }
@@ -184,7 +450,21 @@ public class ShowtimeController {
         }
 
         // Delete the located showtime and return a success response
+        waitingRoom.discard(showtimeOpt.get().getId());
+        writeBehindBookingWriter.retireShowtime(showtimeOpt.get().getId()).join();
         showtimeRepository.delete(showtimeOpt.get());
+        seatMapRegistry.evict(showtimeOpt.get().getId());
+        scheduleIndex.remove(showtimeOpt.get().getId());
+        versionCache.evictShowtime(showtimeOpt.get().getId());
+        invalidationBus.showtimeDeleted(showtimeOpt.get().getId());
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Build a 200 OK response for a showtime with its version as the ETag, and remember the version.
+     */
+    private ResponseEntity<?> versioned(ShowtimeResponse showtime) {
+        versionCache.putShowtime(showtime.id(), showtime.version());
+        return ResponseEntity.ok().eTag(ETags.of(showtime.version())).body(showtime);
+    }
 }
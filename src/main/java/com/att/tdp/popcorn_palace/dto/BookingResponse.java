@@ -0,0 +1,17 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import com.att.tdp.popcorn_palace.model.Booking;
+
+import java.util.UUID;
+
+/**
+ * Response body of the booking endpoints. The showtime is referenced by ID instead of being serialized with
+ * its movie.
+ */
+public record BookingResponse(UUID bookingId, Long showtimeId, Integer seatNumber, String userId) {
+
+    public static BookingResponse of(Booking booking) {
+        return new BookingResponse(booking.getBookingId(), booking.getShowtime().getId(),
+                booking.getSeatNumber(), booking.getUserId());
+    }
+}
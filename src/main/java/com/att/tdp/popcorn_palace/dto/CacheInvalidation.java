@@ -0,0 +1,43 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.util.List;
+
+/**
+ * A change to movie or showtime data, broadcast to the other application instances so that they evict what they
+ * have cached about it, open or close the waiting room of a showtime, or mark booked seats taken in its seat map.
+ *
+ * @param origin  The instance that made the change; it ignores its own invalidations.
+ * @param kind    What changed.
+ * @param id      The ID of the movie or showtime, or null if several were added at once.
+ * @param theater The theater of a changed showtime, whose schedule has to be reloaded, or null.
+ * @param seats   The seats that were booked, or null for other kinds of change.
+ */
+public record CacheInvalidation(String origin, Kind kind, Long id, String theater, List<Integer> seats) {
+
+    public enum Kind {
+        /**
+         * A movie was added, updated or deleted.
+         */
+        MOVIE,
+        /**
+         * A showtime was added or updated.
+         */
+        SHOWTIME,
+        /**
+         * A showtime was deleted.
+         */
+        SHOWTIME_DELETED,
+        /**
+         * The waiting room of a showtime was opened.
+         */
+        WAITING_ROOM_OPENED,
+        /**
+         * The waiting room of a showtime was closed.
+         */
+        WAITING_ROOM_CLOSED,
+        /**
+         * Seats of a showtime were booked.
+         */
+        SEATS_TAKEN
+    }
+}
@@ -0,0 +1,21 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GroupBookingRequest {
+    @NotNull(message = "Showtime ID is required")
+    private Long showtimeId;
+
+    @NotEmpty(message = "At least one seat number is required")
+    @Size(max = 100, message = "At most 100 seats can be booked at once")
+    private List<@NotNull(message = "Seat number is required") Integer> seatNumbers;
+
+    @NotNull(message = "User ID is required")
+    private String userId;
+}
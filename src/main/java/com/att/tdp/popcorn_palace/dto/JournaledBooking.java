@@ -0,0 +1,16 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import com.att.tdp.popcorn_palace.model.Booking;
+
+import java.util.UUID;
+
+/**
+ * The columns of an accepted booking, as written to the write-behind journal and flushed to the bookings table.
+ */
+public record JournaledBooking(UUID bookingId, Long showtimeId, Integer seatNumber, String userId) {
+
+    public static JournaledBooking of(Booking booking) {
+        return new JournaledBooking(booking.getBookingId(), booking.getShowtime().getId(),
+                booking.getSeatNumber(), booking.getUserId());
+    }
+}
@@ -0,0 +1,44 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk movie import.
+ * <p>
+ * Rows are counted as imported, skipped because the title already exists (in the catalog or earlier in the
+ * file), or failed. Only the first {@link #MAX_REPORTED_ERRORS} failures are listed in {@code errors}, so the
+ * report stays small however large the file is.
+ * </p>
+ */
+@Data
+public class MovieImportReport {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private long imported;
+
+    private long duplicates;
+
+    private long failed;
+
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * Record a row that could not be imported.
+     *
+     * @param line    The line number of the row in the request body, starting at 1.
+     * @param message Why the row was rejected.
+     */
+    public void rowFailed(long line, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import com.att.tdp.popcorn_palace.model.Movie;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of the movie catalog ordered by ID.
+ * <p>
+ * {@code nextCursor} is the ID to pass as {@code after} to fetch the next page, or null on the last page.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+public class MoviePage {
+    private List<Movie> items;
+
+    private Long nextCursor;
+}
@@ -0,0 +1,28 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Seat availability of a showtime.
+ * <p>
+ * {@code bitmap} is the Base64 encoding of the occupancy of seats {@code 0} to {@code capacity - 1}, where seat
+ * {@code n} is taken if bit {@code n % 8} of byte {@code n / 8} is set. Taken seats outside of that range are
+ * listed in {@code otherTakenSeats}.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+public class SeatMapResponse {
+    private Long showtimeId;
+
+    private int capacity;
+
+    private int takenCount;
+
+    private String bitmap;
+
+    private List<Integer> otherTakenSeats;
+}
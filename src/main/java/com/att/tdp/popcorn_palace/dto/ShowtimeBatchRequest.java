@@ -0,0 +1,16 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ShowtimeBatchRequest {
+    @NotEmpty(message = "At least one showtime is required")
+    @Size(max = 5000, message = "At most 5000 showtimes can be added at once")
+    private List<@Valid @NotNull(message = "Showtime is required") ShowtimeRequest> showtimes;
+}
@@ -0,0 +1,52 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a showtime search ordered by (startTime, id): the next page starts right after this showtime.
+ * <p>
+ * Clients receive the cursor as an opaque URL-safe string and pass it back unchanged.
+ * </p>
+ */
+public record ShowtimeCursor(LocalDateTime startTime, Long id) {
+
+    /**
+     * @param showtime The last showtime of a page.
+     * @return The cursor of the page that follows it.
+     */
+    public static ShowtimeCursor after(ShowtimeResponse showtime) {
+        return new ShowtimeCursor(showtime.startTime(), showtime.id());
+    }
+
+    /**
+     * @return The cursor as an opaque URL-safe string.
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((startTime + "," + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a cursor previously returned by {@link #encode()}.
+     *
+     * @param cursor The encoded cursor.
+     * @return The decoded cursor.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static ShowtimeCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = decoded.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ShowtimeCursor(LocalDateTime.parse(decoded.substring(0, comma)),
+                    Long.valueOf(decoded.substring(comma + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
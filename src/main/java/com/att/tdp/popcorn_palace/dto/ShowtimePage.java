@@ -0,0 +1,20 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of showtime search results ordered by start time, then ID.
+ * <p>
+ * {@code nextCursor} is the value to pass as {@code cursor} to fetch the next page, or null on the last page.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+public class ShowtimePage {
+    private List<ShowtimeResponse> items;
+
+    private String nextCursor;
+}
@@ -0,0 +1,20 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import com.att.tdp.popcorn_palace.model.Showtime;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response body of the showtime endpoints. The movie is referenced by ID, so serializing a showtime never
+ * touches its lazily loaded movie. The version is sent as the ETag instead of in the body.
+ */
+public record ShowtimeResponse(Long id, Double price, Long movieId, String theater,
+                               LocalDateTime startTime, LocalDateTime endTime, @JsonIgnore Long version) {
+
+    public static ShowtimeResponse of(Showtime showtime) {
+        // Reading the ID of a lazy proxy does not initialize it.
+        return new ShowtimeResponse(showtime.getId(), showtime.getPrice(), showtime.getMovie().getId(),
+                showtime.getTheater(), showtime.getStartTime(), showtime.getEndTime(), showtime.getVersion());
+    }
+}
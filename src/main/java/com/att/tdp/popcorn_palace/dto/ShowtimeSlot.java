@@ -0,0 +1,14 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the scheduling columns of a showtime, used where the full entity graph is not needed.
+ */
+public interface ShowtimeSlot {
+    Long getId();
+
+    LocalDateTime getStartTime();
+
+    LocalDateTime getEndTime();
+}
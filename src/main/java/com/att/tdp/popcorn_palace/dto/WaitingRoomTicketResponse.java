@@ -0,0 +1,24 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import com.att.tdp.popcorn_palace.service.WaitingRoomTicket;
+
+import java.util.UUID;
+
+/**
+ * Response body of a booking request queued in a showtime's waiting room.
+ *
+ * @param position            The ticket's place in the queue (1 is next), while it is queued.
+ * @param estimatedWaitMillis How long the ticket is expected to wait, while it is queued.
+ * @param booking             The booking, once the ticket is booked.
+ * @param message             Why the ticket was rejected.
+ */
+public record WaitingRoomTicketResponse(UUID ticketId, Long showtimeId, Integer seatNumber, String userId,
+                                        WaitingRoomTicket.State state, Long position, Long estimatedWaitMillis,
+                                        BookingResponse booking, String message) {
+
+    public static WaitingRoomTicketResponse of(WaitingRoomTicket ticket, Long position, Long estimatedWaitMillis) {
+        return new WaitingRoomTicketResponse(ticket.getTicketId(), ticket.getShowtimeId(), ticket.getSeatNumber(),
+                ticket.getUserId(), ticket.getState(), position, estimatedWaitMillis, ticket.getBooking(),
+                ticket.getMessage());
+    }
+}
@@ -3,25 +3,29 @@ package com.att.tdp.popcorn_palace.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import org.hibernate.annotations.UuidGenerator;
 import java.util.UUID;
 
 /**
  * Represents a booking record for a showtime.
  * <p>
  * This entity contains details such as the associated showtime, the seat number, and the user ID.
+ * A seat can be booked only once per showtime, which is enforced by a unique constraint.
  * </p>
  */
 @Data
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", uniqueConstraints = @UniqueConstraint(
+        name = "uk_bookings_showtime_seat", columnNames = {"showtime_id", "seat_number"}))
 public class Booking {
 
     /**
      * The unique identifier for the booking.
-     * Generated as a UUID.
+     * Generated as a time-ordered UUID (version 7), so new bookings are appended to the primary key index.
      */
     @Id
     @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7.Generator.class)
     private UUID bookingId;
 
     /**
@@ -0,0 +1,33 @@
+package com.att.tdp.popcorn_palace.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Represents a counter that is raised on every write to a catalog, such as the movie catalog.
+ * <p>
+ * This entity maps to the "catalog_versions" table. The counter only ever grows, so a version, once handed out as
+ * an ETag, never describes a different state of the catalog, and every instance sees the same version.
+ * </p>
+ */
+@Data
+@Entity
+@Table(name = "catalog_versions")
+public class CatalogVersion {
+
+    /**
+     * The name of the catalog.
+     */
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    /**
+     * The number of writes to the catalog so far.
+     */
+    @Column(nullable = false)
+    private long version;
+}
@@ -0,0 +1,61 @@
+package com.att.tdp.popcorn_palace.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Represents a request made with an Idempotency-Key header and the response it produced.
+ * <p>
+ * This entity maps to the "idempotency_keys" table. A row is inserted when the first request with a key starts,
+ * which also serves as the lock against concurrent retries on other instances, and the response is filled in
+ * when it completes. Retries with the same key are answered from the stored response.
+ * </p>
+ */
+@Data
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+    // The longest response body that is stored.
+    public static final int MAX_BODY_LENGTH = 65535;
+
+    /**
+     * The key sent by the client.
+     */
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    /**
+     * SHA-256 of the request method, path and body, used to reject a key reused for a different request.
+     */
+    @Column(nullable = false, length = 64)
+    private String requestFingerprint;
+
+    /**
+     * When the first request with this key started.
+     */
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /**
+     * The HTTP status of the stored response, or null while the first request is still in flight.
+     */
+    private Integer responseStatus;
+
+    /**
+     * The Content-Type of the stored response.
+     */
+    private String responseContentType;
+
+    /**
+     * The body of the stored response.
+     */
+    @Column(length = IdempotencyRecord.MAX_BODY_LENGTH)
+    private String responseBody;
+}
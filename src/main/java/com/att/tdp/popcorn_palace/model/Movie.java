@@ -1,9 +1,11 @@
 package com.att.tdp.popcorn_palace.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Represents a movie entity with basic attributes such as title, genre, duration, rating, and release year.
@@ -18,10 +20,11 @@ public class Movie {
 
     /**
      * The unique identifier for the movie.
-     * Generated automatically using the IDENTITY strategy.
+     * Generated from the "movies_seq" sequence, reserving blocks of IDs so that inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movies_seq")
+    @SequenceGenerator(name = "movies_seq", sequenceName = "movies_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -59,4 +62,14 @@ public class Movie {
      */
     @NotNull(message = "Release year is required")
     private int releaseYear;
+
+    /**
+     * The version of the movie, incremented on every update.
+     * Used for optimistic locking and exposed to clients as the ETag rather than in the JSON body.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
 }
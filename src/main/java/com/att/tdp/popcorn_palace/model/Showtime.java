@@ -1,10 +1,11 @@
 package com.att.tdp.popcorn_palace.model;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 
 /**
@@ -12,20 +13,29 @@ import java.time.LocalDateTime;
  * <p>
  * This entity maps to the "showtimes" table in the database and includes details such as price, theater,
  * start and end times, and the associated movie. The movie relationship is configured with LAZY fetching to
- * improve performance, and JSON serialization is managed to avoid issues with lazy-loaded properties.
+ * improve performance. Showtimes are returned to clients as {@code ShowtimeResponse} rather than serialized.
+ * A (theater, start_time, end_time) index backs the overlap validation of a theater's schedule; the
+ * (theater, start_time, id), (movie_id, start_time, id) and (start_time, id) indexes back the search by theater,
+ * by movie and by date range in result order.
  * </p>
  */
 @Data
 @Entity
-@Table(name = "showtimes")
+@Table(name = "showtimes", indexes = {
+        @Index(name = "idx_showtimes_theater_start_end", columnList = "theater, start_time, end_time"),
+        @Index(name = "idx_showtimes_theater_start_id", columnList = "theater, start_time, id"),
+        @Index(name = "idx_showtimes_movie_start_id", columnList = "movie_id, start_time, id"),
+        @Index(name = "idx_showtimes_start_id", columnList = "start_time, id")
+})
 public class Showtime {
 
     /**
      * The unique identifier for the showtime.
-     * Generated automatically using the IDENTITY strategy.
+     * Generated from the "showtimes_seq" sequence, reserving blocks of IDs so that inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "showtimes_seq")
+    @SequenceGenerator(name = "showtimes_seq", sequenceName = "showtimes_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -58,13 +68,28 @@ public class Showtime {
 
     /**
      * The movie associated with this showtime.
-     * <p>
-     * Configured with LAZY fetching to optimize performance and annotated with @JsonIgnoreProperties to avoid
-     * issues during JSON serialization of the lazy-loaded association.
-     * </p>
+     * Configured with LAZY fetching to optimize performance; responses expose only its ID.
      */
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "movie_id", nullable = false)
-    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
     private Movie movie;
+
+    /**
+     * The version of the showtime, incremented on every update.
+     * Used for optimistic locking and exposed to clients as the ETag rather than in the JSON body.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Whether booking requests for this showtime are queued in a waiting room.
+     * Stored so that every instance, including ones started later, queues them; changed without a version bump.
+     */
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    @JsonIgnore
+    private boolean waitingRoomOpen;
 }
@@ -0,0 +1,51 @@
+package com.att.tdp.popcorn_palace.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUIDs as defined by RFC 9562, version 7.
+ * <p>
+ * The first 48 bits hold the Unix time in milliseconds and the next 12 bits a counter, so IDs generated by this
+ * JVM are strictly increasing and land at the right edge of a B-tree index instead of at random pages. The
+ * remaining 62 bits are random.
+ * </p>
+ */
+public final class UuidV7 {
+
+    // Milliseconds in the upper bits, counter within the millisecond in the lower 12 bits.
+    private static final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    /**
+     * @return A new version 7 UUID, greater than any previously returned by this JVM.
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        // If the counter overflows, borrow the next millisecond rather than going backwards.
+        long timestampAndCounter = lastTimestampAndCounter.updateAndGet(last -> Math.max(last + 1, now));
+        long mostSignificantBits = (timestampAndCounter >>> 12) << 16
+                | 0x7000L
+                | (timestampAndCounter & 0xFFFL);
+        long leastSignificantBits = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL
+                | 0x8000000000000000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Hibernate value generator for {@code @UuidGenerator(algorithm = UuidV7.Generator.class)}.
+     */
+    public static class Generator implements UuidValueGenerator {
+
+        @Override
+        public UUID generateUuid(SharedSessionContractImplementor session) {
+            return next();
+        }
+    }
+}
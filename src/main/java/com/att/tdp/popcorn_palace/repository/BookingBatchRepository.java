@@ -0,0 +1,71 @@
+package com.att.tdp.popcorn_palace.repository;
+
+import com.att.tdp.popcorn_palace.dto.JournaledBooking;
+import com.att.tdp.popcorn_palace.model.Booking;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JDBC-batched writes for bookings, used where many seats are inserted at once.
+ */
+@Repository
+public class BookingBatchRepository {
+
+    private static final String INSERT_BOOKING =
+            "INSERT INTO bookings (booking_id, showtime_id, seat_number, user_id) VALUES (?, ?, ?, ?)";
+
+    // Joined against showtimes, so that bookings of a showtime deleted in the meantime are skipped, not failed.
+    private static final String INSERT_BOOKING_IF_SEAT_FREE =
+            "INSERT INTO bookings (booking_id, showtime_id, seat_number, user_id) " +
+            "SELECT ?, id, ?, ? FROM showtimes WHERE id = ? ON CONFLICT DO NOTHING";
+
+    // Injecting the JdbcTemplate to send inserts as a single JDBC batch.
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert all bookings in one transaction as a single JDBC batch.
+     * <p>
+     * If any seat is already booked, the unique seat constraint fails the batch and the whole transaction is
+     * rolled back, so either all bookings are stored or none are.
+     * </p>
+     *
+     * @param bookings The bookings to insert, with their IDs and showtimes already set.
+     * @throws org.springframework.dao.DataIntegrityViolationException if a seat is already booked.
+     */
+    @Transactional
+    public void insertAll(List<Booking> bookings) {
+        jdbcTemplate.batchUpdate(INSERT_BOOKING, bookings, bookings.size(), (ps, booking) -> {
+            ps.setObject(1, booking.getBookingId());
+            ps.setLong(2, booking.getShowtime().getId());
+            ps.setInt(3, booking.getSeatNumber());
+            ps.setString(4, booking.getUserId());
+        });
+    }
+
+    /**
+     * Insert journaled bookings in one transaction as a single JDBC batch, skipping rows whose booking ID or
+     * seat already exists, so that a journal can be replayed more than once, and rows whose showtime no longer
+     * exists.
+     *
+     * @param bookings The bookings to insert.
+     * @return The number of bookings reported as inserted. Drivers that rewrite batches report no per-row counts,
+     * so fewer bookings than were actually inserted may be reported.
+     */
+    @Transactional
+    public int insertIgnoringConflicts(List<JournaledBooking> bookings) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_BOOKING_IF_SEAT_FREE, bookings, bookings.size(), (ps, booking) -> {
+            ps.setObject(1, booking.bookingId());
+            ps.setInt(2, booking.seatNumber());
+            ps.setString(3, booking.userId());
+            ps.setLong(4, booking.showtimeId());
+        });
+        // Drivers that rewrite batches report SUCCESS_NO_INFO (-2) per row, which may also have been skipped.
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).map(count -> Math.max(count, 0)).sum();
+    }
+}
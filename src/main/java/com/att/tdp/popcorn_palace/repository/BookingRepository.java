@@ -3,8 +3,40 @@ package com.att.tdp.popcorn_palace.repository;
 import com.att.tdp.popcorn_palace.model.Booking;
 import com.att.tdp.popcorn_palace.model.Showtime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface BookingRepository extends JpaRepository<Booking, UUID> {
     boolean existsByShowtimeAndSeatNumber(Showtime showtime, Integer seatNumber);
+
+    @Query("select b.seatNumber from Booking b where b.showtime.id = :showtimeId")
+    List<Integer> findSeatNumbersByShowtimeId(@Param("showtimeId") Long showtimeId);
+
+    @Query("select b.seatNumber from Booking b where b.showtime.id = :showtimeId and b.seatNumber in :seatNumbers")
+    List<Integer> findBookedSeatNumbers(@Param("showtimeId") Long showtimeId,
+                                        @Param("seatNumbers") Collection<Integer> seatNumbers);
+
+    @Query("select b.bookingId from Booking b where b.bookingId in :bookingIds")
+    List<UUID> findExistingBookingIds(@Param("bookingIds") Collection<UUID> bookingIds);
+
+    /**
+     * Insert a booking in a single statement, relying on the unique (showtime_id, seat_number) constraint
+     * to reject a seat that is already booked.
+     *
+     * @return 1 if the booking was inserted, 0 if the seat was already booked.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO bookings (booking_id, showtime_id, seat_number, user_id) " +
+            "VALUES (:bookingId, :showtimeId, :seatNumber, :userId) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfSeatFree(@Param("bookingId") UUID bookingId,
+                         @Param("showtimeId") Long showtimeId,
+                         @Param("seatNumber") Integer seatNumber,
+                         @Param("userId") String userId);
 }
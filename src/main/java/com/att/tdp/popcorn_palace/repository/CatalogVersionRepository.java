@@ -0,0 +1,35 @@
+package com.att.tdp.popcorn_palace.repository;
+
+import com.att.tdp.popcorn_palace.model.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, String> {
+
+    @Query("select c.version from CatalogVersion c where c.name = :name")
+    Optional<Long> findVersion(@Param("name") String name);
+
+    /**
+     * Raise the version of a catalog.
+     *
+     * @return 1 if the version was raised, 0 if the catalog has no counter yet.
+     */
+    @Modifying
+    @Transactional
+    @Query("update CatalogVersion c set c.version = c.version + 1 where c.name = :name")
+    int increment(@Param("name") String name);
+
+    /**
+     * Create the counter of a catalog at version 0, unless another instance already created it.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO catalog_versions (name, version) VALUES (:name, 0) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+}
@@ -1,9 +1,35 @@
 package com.att.tdp.popcorn_palace.repository;
 
 import com.att.tdp.popcorn_palace.model.Movie;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MovieRepository extends JpaRepository<Movie, Long> {
     Optional<Movie> findByTitle(String title);
+
+    @Query("select m.id from Movie m where m.title = :title")
+    Optional<Long> findIdByTitle(@Param("title") String title);
+
+    @Query("select m.title from Movie m where m.title in :titles")
+    List<String> findExistingTitles(@Param("titles") Collection<String> titles);
+
+    List<Movie> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Stream the whole catalog ordered by ID. Must be consumed inside a transaction, which lets the driver
+     * fetch rows in chunks instead of materializing the result.
+     */
+    @Query("select m from Movie m order by m.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Movie> streamAll();
 }
@@ -1,14 +1,84 @@
 package com.att.tdp.popcorn_palace.repository;
 
+import com.att.tdp.popcorn_palace.dto.ShowtimeResponse;
+import com.att.tdp.popcorn_palace.dto.ShowtimeSlot;
 import com.att.tdp.popcorn_palace.model.Movie;
 import com.att.tdp.popcorn_palace.model.Showtime;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
-public interface ShowtimeRepository extends JpaRepository<Showtime, Long> {
+public interface ShowtimeRepository extends JpaRepository<Showtime, Long>, ShowtimeSearchRepository {
     List<Showtime> findByTheater(String theater);
     Optional<Showtime> findByMovieAndTheaterAndStartTime(Movie movie, String theater, LocalDateTime startTime);
+
+    /**
+     * Fetch a showtime's response body in one query, reading the movie ID from the foreign key column.
+     */
+    @Query("select new com.att.tdp.popcorn_palace.dto.ShowtimeResponse(s.id, s.price, s.movie.id, s.theater, " +
+            "s.startTime, s.endTime, s.version) from Showtime s where s.id = :id")
+    Optional<ShowtimeResponse> findResponseById(@Param("id") Long id);
+
+    @Query("select s.id as id, s.startTime as startTime, s.endTime as endTime from Showtime s where s.theater = :theater")
+    List<ShowtimeSlot> findSlotsByTheater(@Param("theater") String theater);
+
+    /**
+     * Fetch the showtimes of a theater that overlap [from, to), ordered by start time, using the
+     * (theater, start_time, end_time) index. Only showtimes starting after {@code earliestStart}, i.e. {@code from}
+     * minus the longest possible showtime, can overlap, which bounds the range scan from below.
+     */
+    @Query("select s.id as id, s.startTime as startTime, s.endTime as endTime from Showtime s " +
+            "where s.theater = :theater and s.startTime > :earliestStart and s.startTime < :to " +
+            "and s.endTime > :from order by s.startTime")
+    List<ShowtimeSlot> findSlotsOverlapping(@Param("theater") String theater,
+                                            @Param("earliestStart") LocalDateTime earliestStart,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
+
+    /**
+     * Find the IDs of showtimes in the theater overlapping [startTime, endTime), using the
+     * (theater, start_time, end_time) index bounded on both sides like {@link #findSlotsOverlapping}.
+     */
+    @Query("select s.id from Showtime s where s.theater = :theater " +
+            "and s.startTime > :earliestStart and s.startTime < :endTime and s.endTime > :startTime " +
+            "and (:excludeId is null or s.id <> :excludeId)")
+    List<Long> findOverlappingIds(@Param("theater") String theater,
+                                  @Param("earliestStart") LocalDateTime earliestStart,
+                                  @Param("startTime") LocalDateTime startTime,
+                                  @Param("endTime") LocalDateTime endTime,
+                                  @Param("excludeId") Long excludeId,
+                                  Limit limit);
+
+    /**
+     * Check in SQL whether [startTime, endTime) overlaps a showtime in the theater, stopping at the first match
+     * instead of loading or counting the theater's showtimes.
+     *
+     * @param maxDuration The longest a showtime can last, which bounds how far back the scan has to look.
+     */
+    default boolean existsOverlapping(String theater, LocalDateTime startTime, LocalDateTime endTime, Long excludeId,
+                                      Duration maxDuration) {
+        return !findOverlappingIds(theater, startTime.minus(maxDuration), startTime, endTime, excludeId, Limit.of(1))
+                .isEmpty();
+    }
+
+    /**
+     * Set whether a showtime has an open waiting room, as a bulk update that leaves its version unchanged.
+     *
+     * @return 1 if the flag changed, 0 if the showtime does not exist or already had that value.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Showtime s set s.waitingRoomOpen = :open where s.id = :id and s.waitingRoomOpen <> :open")
+    int updateWaitingRoomOpen(@Param("id") Long id, @Param("open") boolean open);
+
+    @Query("select s.id from Showtime s where s.waitingRoomOpen = true")
+    List<Long> findIdsWithOpenWaitingRoom();
 }
@@ -0,0 +1,27 @@
+package com.att.tdp.popcorn_palace.repository;
+
+import com.att.tdp.popcorn_palace.dto.ShowtimeCursor;
+import com.att.tdp.popcorn_palace.dto.ShowtimeResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Filtered showtime search, mixed into {@link ShowtimeRepository}.
+ */
+public interface ShowtimeSearchRepository {
+
+    /**
+     * Find showtimes matching all given filters, ordered by start time, then ID. Null filters are ignored.
+     *
+     * @param movieId The movie of the showtimes, or null.
+     * @param theater The theater of the showtimes, or null.
+     * @param from    The earliest start time (inclusive), or null.
+     * @param to      The latest start time (exclusive), or null.
+     * @param after   Only return showtimes after this position, or null for the first page.
+     * @param limit   The maximum number of showtimes to return.
+     * @return The matching showtimes as response bodies.
+     */
+    List<ShowtimeResponse> search(Long movieId, String theater, LocalDateTime from, LocalDateTime to,
+                                  ShowtimeCursor after, int limit);
+}
@@ -0,0 +1,74 @@
+package com.att.tdp.popcorn_palace.repository;
+
+import com.att.tdp.popcorn_palace.dto.ShowtimeCursor;
+import com.att.tdp.popcorn_palace.dto.ShowtimeResponse;
+import com.att.tdp.popcorn_palace.model.Showtime;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria implementation of {@link ShowtimeSearchRepository}.
+ * <p>
+ * Only the filters that are set become predicates, so the database sees a plain conjunction it can match to the
+ * (movie_id, start_time, id), (theater, start_time, id) or (start_time, id) index, rather than
+ * {@code :param is null or ...} clauses that defeat index selection. Each of them returns rows in result order,
+ * so there is no sort step. Paging compares (startTime, id) against the cursor; since an OR is not an index
+ * condition, the cursor's start time is also added as a plain lower bound, so every page is an index range scan
+ * starting at the cursor regardless of how deep it is.
+ * </p>
+ */
+class ShowtimeSearchRepositoryImpl implements ShowtimeSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ShowtimeResponse> search(Long movieId, String theater, LocalDateTime from, LocalDateTime to,
+                                         ShowtimeCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ShowtimeResponse> query = cb.createQuery(ShowtimeResponse.class);
+        Root<Showtime> showtime = query.from(Showtime.class);
+        Path<Long> id = showtime.get("id");
+        Path<LocalDateTime> startTime = showtime.get("startTime");
+        // Reads the foreign key column without joining the movies table
+        Path<Long> showtimeMovieId = showtime.get("movie").get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (movieId != null) {
+            predicates.add(cb.equal(showtimeMovieId, movieId));
+        }
+        if (theater != null) {
+            predicates.add(cb.equal(showtime.get("theater"), theater));
+        }
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(startTime, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(startTime, to));
+        }
+        if (after != null) {
+            // Redundant with the comparison below, but it is what the index range scan starts from.
+            predicates.add(cb.greaterThanOrEqualTo(startTime, after.startTime()));
+            predicates.add(cb.or(
+                    cb.greaterThan(startTime, after.startTime()),
+                    cb.and(cb.equal(startTime, after.startTime()), cb.greaterThan(id, after.id()))));
+        }
+
+        query.select(cb.construct(ShowtimeResponse.class, id, showtime.get("price"), showtimeMovieId,
+                        showtime.get("theater"), startTime, showtime.get("endTime"), showtime.get("version")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.asc(startTime), cb.asc(id));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
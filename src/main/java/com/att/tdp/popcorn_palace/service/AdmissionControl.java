@@ -0,0 +1,168 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for the booking and showtime paths, applied before a request touches the database.
+ * <p>
+ * Every booking request takes one token per seat from the bucket of its user and from the bucket of its
+ * showtime, so a single client cannot monopolize the connection pool and a single hot showtime cannot starve the
+ * others. Tokens taken from the user's bucket are given back if the showtime's bucket rejects the request, so a
+ * user retrying against a saturated showtime is not locked out by their own limit. Reads of a showtime and its
+ * seat map have their own per-showtime bucket, so polling a showtime does not eat into its booking budget.
+ * Showtime writes carry no user, so they share one bucket for the whole schedule, charged per showtime written.
+ * A rejected request is answered with 429 and the time after which it would be admitted.
+ * </p>
+ * <p>
+ * Buckets are created on first use and kept in size-bounded caches. An idle bucket is dropped once it would have
+ * refilled anyway, so expiry never resets a bucket early; only a flood of distinct keys can evict a bucket that is
+ * still draining.
+ * </p>
+ */
+@Component
+public class AdmissionControl {
+
+    /**
+     * The outcome of an admission check.
+     *
+     * @param admitted          Whether the request may proceed.
+     * @param retryAfterSeconds When a rejected request would be admitted, rounded up to whole seconds.
+     * @param limiter           The name of the limiter that rejected the request, or null.
+     */
+    public record Admission(boolean admitted, long retryAfterSeconds, String limiter) {
+
+        static final Admission ADMITTED = new Admission(true, 0, null);
+    }
+
+    // The key of the single bucket shared by all showtime writes.
+    private static final String SCHEDULE = "schedule";
+
+    private final PalaceMetrics metrics;
+
+    private final boolean enabled;
+
+    private final Limiter users;
+
+    private final Limiter showtimes;
+
+    private final Limiter showtimeReads;
+
+    private final Limiter scheduleWrites;
+
+    public AdmissionControl(PalaceMetrics metrics,
+                            @Value("${popcorn-palace.admission.enabled:true}") boolean enabled,
+                            @Value("${popcorn-palace.admission.maximum-keys:100000}") long maximumKeys,
+                            @Value("${popcorn-palace.admission.user.rate:2}") double userRate,
+                            @Value("${popcorn-palace.admission.user.burst:10}") long userBurst,
+                            @Value("${popcorn-palace.admission.showtime.rate:200}") double showtimeRate,
+                            @Value("${popcorn-palace.admission.showtime.burst:400}") long showtimeBurst,
+                            @Value("${popcorn-palace.admission.showtime-read.rate:50}") double showtimeReadRate,
+                            @Value("${popcorn-palace.admission.showtime-read.burst:100}") long showtimeReadBurst,
+                            @Value("${popcorn-palace.admission.schedule.rate:20}") double scheduleRate,
+                            @Value("${popcorn-palace.admission.schedule.burst:200}") long scheduleBurst) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.users = new Limiter("user", userRate, userBurst, maximumKeys);
+        this.showtimes = new Limiter("showtime", showtimeRate, showtimeBurst, maximumKeys);
+        this.showtimeReads = new Limiter("showtime-read", showtimeReadRate, showtimeReadBurst, maximumKeys);
+        this.scheduleWrites = new Limiter("schedule", scheduleRate, scheduleBurst, 1);
+    }
+
+    /**
+     * Admit a request that books or holds seats.
+     *
+     * @param userId     The user making the request.
+     * @param showtimeId The showtime whose seats are requested.
+     * @param seats      The number of seats requested.
+     * @return The outcome of the check.
+     */
+    public Admission admitBooking(String userId, Long showtimeId, int seats) {
+        if (!enabled) {
+            return Admission.ADMITTED;
+        }
+        // Users are checked first, so a client that floods the API is shed before it drains the showtime.
+        Admission admission = users.admit(userId, seats);
+        if (!admission.admitted()) {
+            return admission;
+        }
+        Admission showtimeAdmission = showtimes.admit(showtimeId, seats);
+        if (!showtimeAdmission.admitted()) {
+            users.release(userId, seats);
+        }
+        return showtimeAdmission;
+    }
+
+    /**
+     * Admit a read of a showtime or its seat map.
+     *
+     * @param showtimeId The showtime.
+     * @return The outcome of the check.
+     */
+    public Admission admitShowtimeRead(Long showtimeId) {
+        return enabled ? showtimeReads.admit(showtimeId, 1) : Admission.ADMITTED;
+    }
+
+    /**
+     * Admit a request that adds, updates or deletes showtimes.
+     *
+     * @param showtimes The number of showtimes written.
+     * @return The outcome of the check.
+     */
+    public Admission admitScheduleWrite(int showtimes) {
+        return enabled ? scheduleWrites.admit(SCHEDULE, showtimes) : Admission.ADMITTED;
+    }
+
+    /**
+     * Refill all buckets, e.g. after a test or a configuration change.
+     */
+    public void reset() {
+        users.buckets.invalidateAll();
+        showtimes.buckets.invalidateAll();
+        showtimeReads.buckets.invalidateAll();
+        scheduleWrites.buckets.invalidateAll();
+    }
+
+    private class Limiter {
+
+        private final String name;
+
+        private final double rate;
+
+        private final long burst;
+
+        private final Cache<Object, TokenBucket> buckets;
+
+        Limiter(String name, double rate, long burst, long maximumKeys) {
+            this.name = name;
+            this.rate = rate;
+            this.burst = burst;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumKeys)
+                    .expireAfterAccess(Duration.ofNanos(new TokenBucket(rate, burst).refillNanos()))
+                    .build();
+        }
+
+        Admission admit(Object key, int tokens) {
+            long waitNanos = buckets.get(key, k -> new TokenBucket(rate, burst)).tryAcquire(tokens);
+            if (waitNanos == 0) {
+                return Admission.ADMITTED;
+            }
+            metrics.admissionRejected(name);
+            long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            return new Admission(false, retryAfterSeconds, name);
+        }
+
+        void release(Object key, int tokens) {
+            TokenBucket bucket = buckets.getIfPresent(key);
+            if (bucket != null) {
+                bucket.release(tokens);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.JournaledBooking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only file of accepted bookings that have not been written to the database yet.
+ * <p>
+ * Each record is the booking's columns followed by a CRC32 of those bytes. A failed append is cut off again, and
+ * a record torn by a crash fails its checksum; reading skips ahead to the next record that passes its checksum, so
+ * the records after a damaged one are still recovered. The journal is not thread-safe; it is owned by the single
+ * writer thread of {@link WriteBehindBookingWriter}.
+ * </p>
+ */
+public class BookingJournal implements AutoCloseable {
+
+    private final FileChannel channel;
+
+    /**
+     * Open a journal, creating the file and its directory if needed.
+     *
+     * @param path The journal file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public BookingJournal(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * Append bookings and force them to disk with a single fsync. If the write or the fsync fails, the journal is
+     * truncated back to its previous size, so later appends do not follow a partially written record.
+     *
+     * @param bookings The bookings to append.
+     * @throws IOException if the write or the fsync fails.
+     */
+    public void append(List<JournaledBooking> bookings) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bookings.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (JournaledBooking booking : bookings) {
+            byte[] record = encode(booking);
+            out.write(record);
+            out.writeInt(checksum(record));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long start = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Read every intact record in the journal. Bytes that do not form a record with a valid checksum, such as a
+     * record torn by a crash, are skipped one at a time until the next intact record.
+     *
+     * @return The journaled bookings, in append order.
+     * @throws IOException if the file cannot be read.
+     */
+    public List<JournaledBooking> readAll() throws IOException {
+        // The journal is truncated after every flush, so it only ever holds the bookings of a few batches.
+        byte[] content = new byte[(int) channel.size()];
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        channel.position(channel.size());
+
+        List<JournaledBooking> bookings = new ArrayList<>();
+        int offset = 0;
+        while (offset < content.length) {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(content, offset, content.length - offset);
+            DataInputStream in = new DataInputStream(bytes);
+            try {
+                JournaledBooking booking = new JournaledBooking(new UUID(in.readLong(), in.readLong()),
+                        in.readLong(), in.readInt(), in.readUTF());
+                if (checksum(encode(booking)) == in.readInt()) {
+                    bookings.add(booking);
+                    offset = content.length - bytes.available();
+                    continue;
+                }
+            } catch (EOFException | UTFDataFormatException e) {
+                // Not a complete record at this offset.
+            }
+            offset++;
+        }
+        return bookings;
+    }
+
+    /**
+     * Discard all records, once they have been written to the database.
+     *
+     * @throws IOException if the file cannot be truncated.
+     */
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] encode(JournaledBooking booking) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeLong(booking.bookingId().getMostSignificantBits());
+        out.writeLong(booking.bookingId().getLeastSignificantBits());
+        out.writeLong(booking.showtimeId());
+        out.writeInt(booking.seatNumber());
+        out.writeUTF(booking.userId());
+        return record.toByteArray();
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,296 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.CacheInvalidation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the in-process caches of several application instances coherent through PostgreSQL LISTEN/NOTIFY.
+ * <p>
+ * After a movie or showtime write, the instance that made it evicts its own caches as before and publishes a
+ * {@link CacheInvalidation} on a notification channel. Every instance listens on that channel on a dedicated
+ * connection outside the pool and evicts the affected movie, showtime version, theater schedule and seat map, so
+ * a change made through one instance is visible to the others within a round trip instead of after the cache
+ * TTLs. Publishing happens after the write has committed and never fails the request.
+ * </p>
+ * <p>
+ * Committed bookings, including confirmed holds, are published as seat events too, and mark the seats taken in
+ * the seat maps other instances have loaded. Holds themselves are not published: a release could be lost with
+ * the instance holding the seat, which would leave the seat taken elsewhere for good. Seat maps only mirror the
+ * bookings table, whose unique seat constraint still rejects a seat booked elsewhere, so a missed seat event
+ * costs a database round trip rather than a double booking.
+ * </p>
+ * <p>
+ * Notifications are delivered at most once. When the listener loses its connection it drops all cached state,
+ * seat maps included, after reconnecting, since it may have missed some.
+ * </p>
+ * <p>
+ * The bus is off by default and is never started against a database other than PostgreSQL.
+ * </p>
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    private static final String CHANNEL = "popcorn_palace_invalidation";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MovieCache movieCache;
+
+    @Autowired
+    private VersionCache versionCache;
+
+    @Autowired
+    private ShowtimeScheduleIndex scheduleIndex;
+
+    @Autowired
+    private SeatMapRegistry seatMapRegistry;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Value("${popcorn-palace.cache.invalidation.enabled:false}")
+    private boolean enabled;
+
+    // How long the listener waits for notifications before checking whether it should stop.
+    @Value("${popcorn-palace.cache.invalidation.poll-timeout:500ms}")
+    private Duration pollTimeout;
+
+    // The listener connects with the application's credentials, but outside the connection pool.
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private Thread listener;
+
+    private volatile boolean running;
+
+    /**
+     * Publish that a movie was added, updated or deleted.
+     *
+     * @param movieId The ID of the movie, or null if several movies were imported.
+     */
+    public void movieChanged(Long movieId) {
+        publish(new CacheInvalidation(instanceId, CacheInvalidation.Kind.MOVIE, movieId, null, null));
+    }
+
+    /**
+     * Publish that a showtime was added or updated.
+     *
+     * @param showtimeId The ID of the showtime, or null if several showtimes were added at once.
+     * @param theater    The theater the showtime is in now.
+     */
+    public void showtimeChanged(Long showtimeId, String theater) {
+        publish(new CacheInvalidation(instanceId, CacheInvalidation.Kind.SHOWTIME, showtimeId, theater, null));
+    }
+
+    /**
+     * Publish that a showtime was deleted.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void showtimeDeleted(Long showtimeId) {
+        publish(new CacheInvalidation(instanceId, CacheInvalidation.Kind.SHOWTIME_DELETED, showtimeId, null, null));
+    }
+
+    /**
+     * Publish that the waiting room of a showtime was opened.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void waitingRoomOpened(Long showtimeId) {
+        publish(new CacheInvalidation(instanceId, CacheInvalidation.Kind.WAITING_ROOM_OPENED, showtimeId, null, null));
+    }
+
+    /**
+     * Publish that the waiting room of a showtime was closed.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void waitingRoomClosed(Long showtimeId) {
+        publish(new CacheInvalidation(instanceId, CacheInvalidation.Kind.WAITING_ROOM_CLOSED, showtimeId, null, null));
+    }
+
+    /**
+     * Publish that bookings for seats of a showtime were committed.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @param seats      The seat numbers.
+     */
+    public void seatsTaken(Long showtimeId, Collection<Integer> seats) {
+        publish(new CacheInvalidation(instanceId, CacheInvalidation.Kind.SEATS_TAKEN, showtimeId, null,
+                List.copyOf(seats)));
+    }
+
+    /**
+     * Evict everything this instance has cached about a change made by another instance.
+     *
+     * @param invalidation The change.
+     */
+    public void apply(CacheInvalidation invalidation) {
+        switch (invalidation.kind()) {
+            case MOVIE -> {
+                if (invalidation.id() != null) {
+                    movieCache.evictById(invalidation.id());
+                }
+                versionCache.evictMovieCatalog();
+            }
+            case SHOWTIME -> {
+                if (invalidation.id() != null) {
+                    versionCache.evictShowtime(invalidation.id());
+                    // The showtime may have moved out of a theater this instance has loaded
+                    scheduleIndex.remove(invalidation.id());
+                }
+                if (invalidation.theater() != null) {
+                    scheduleIndex.evict(invalidation.theater());
+                }
+            }
+            case SHOWTIME_DELETED -> {
+                versionCache.evictShowtime(invalidation.id());
+                scheduleIndex.remove(invalidation.id());
+                // Stop the waiting room first, so that its consumer cannot re-create the seat map evicted below
+                waitingRoom.discard(invalidation.id());
+                seatMapRegistry.evict(invalidation.id());
+            }
+            case WAITING_ROOM_OPENED -> waitingRoom.startQueue(invalidation.id());
+            case WAITING_ROOM_CLOSED -> waitingRoom.stopQueue(invalidation.id());
+            // Seat maps that are not loaded yet read the bookings table when they are.
+            case SEATS_TAKEN -> seatMapRegistry.findLoaded(invalidation.id())
+                    .ifPresent(seats -> invalidation.seats().forEach(seats::claim));
+        }
+    }
+
+    private void publish(CacheInvalidation invalidation) {
+        if (!running) {
+            return;
+        }
+        try {
+            String payload = objectMapper.writeValueAsString(invalidation);
+            jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) ps -> {
+                ps.setString(1, CHANNEL);
+                ps.setString(2, payload);
+                return ps.execute();
+            });
+        } catch (JsonProcessingException | DataAccessException e) {
+            // The write itself succeeded; other instances catch up when their cache entries expire.
+            log.atWarn()
+                    .addKeyValue("kind", invalidation.kind())
+                    .addKeyValue("id", invalidation.id())
+                    .setCause(e)
+                    .log("Failed to publish cache invalidation");
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!url.startsWith("jdbc:postgresql:")) {
+            log.atWarn().addKeyValue("url", url).log("Cache invalidation requires PostgreSQL; not starting");
+            return;
+        }
+        running = true;
+        listener = Thread.ofPlatform().name("cache-invalidation-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (listener == null) {
+            return;
+        }
+        running = false;
+        listener.join(pollTimeout.toMillis() * 4);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnecting) {
+                    // Notifications sent while disconnected are lost, so nothing cached can be trusted. Seat maps
+                    // reload from the bookings table and this instance's own holds.
+                    invalidateAll();
+                    waitingRoom.reload();
+                }
+                log.atInfo().addKeyValue("channel", CHANNEL).log("Listening for cache invalidations");
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                log.atWarn().setCause(e).log("Cache invalidation listener lost its connection; reconnecting");
+                reconnecting = true;
+                sleepBeforeReconnect();
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        try {
+            CacheInvalidation invalidation = objectMapper.readValue(payload, CacheInvalidation.class);
+            if (!instanceId.equals(invalidation.origin())) {
+                apply(invalidation);
+            }
+        } catch (JsonProcessingException e) {
+            log.atWarn().addKeyValue("payload", payload).log("Ignoring malformed cache invalidation");
+        }
+    }
+
+    private void invalidateAll() {
+        movieCache.invalidateAll();
+        versionCache.invalidateAll();
+        scheduleIndex.evictAll();
+        seatMapRegistry.invalidateAll();
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
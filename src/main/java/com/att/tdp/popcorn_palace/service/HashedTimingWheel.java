@@ -0,0 +1,115 @@
+package com.att.tdp.popcorn_palace.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel that fires an expiry callback for items after a delay.
+ * <p>
+ * Scheduling an item is a single enqueue into the bucket of its deadline tick, and one ticker thread visits one
+ * bucket per tick, so the cost does not depend on how many items are pending and no task is created per item.
+ * Items whose deadline lies more than one revolution ahead stay in their bucket until a later revolution.
+ * Items are never cancelled: the callback is expected to ignore items that no longer need to expire.
+ * </p>
+ *
+ * @param <T> The type of the scheduled items.
+ */
+@Slf4j
+public class HashedTimingWheel<T> implements AutoCloseable {
+
+    private final long tickMillis;
+
+    private final Queue<Entry<T>>[] buckets;
+
+    private final Consumer<T> onExpiry;
+
+    private final ScheduledExecutorService ticker;
+
+    private final long startNanos = System.nanoTime();
+
+    // Last tick whose bucket has been processed; only written by the ticker thread.
+    private volatile long processedTick = -1;
+
+    /**
+     * Create a wheel and start its ticker thread.
+     *
+     * @param name       The name of the ticker thread.
+     * @param tickMillis The resolution of the wheel in milliseconds.
+     * @param wheelSize  The number of buckets per revolution.
+     * @param onExpiry   Called on the ticker thread for every item whose delay has elapsed.
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, Consumer<T> onExpiry) {
+        this.tickMillis = tickMillis;
+        this.onExpiry = onExpiry;
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule an item to expire after a delay, rounded up to the next tick.
+     *
+     * @param item        The item to expire.
+     * @param delayMillis The delay in milliseconds.
+     */
+    public void schedule(T item, long delayMillis) {
+        // Never target a tick the ticker may already have passed.
+        long deadlineTick = Math.max(currentTick() + (delayMillis + tickMillis - 1) / tickMillis, processedTick + 1);
+        buckets[(int) (deadlineTick % buckets.length)].add(new Entry<>(item, deadlineTick));
+    }
+
+    /**
+     * Stop the ticker thread; pending items never expire.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    }
+
+    private void advance() {
+        // Catch up on every tick since the last run, in case the ticker fell behind.
+        long now = currentTick();
+        for (long tick = processedTick + 1; tick <= now; tick++) {
+            Queue<Entry<T>> bucket = buckets[(int) (tick % buckets.length)];
+            // Only visit the entries present at the start, so that entries re-queued below wait a revolution.
+            for (int pending = bucket.size(); pending > 0; pending--) {
+                Entry<T> entry = bucket.poll();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.deadlineTick > tick) {
+                    bucket.add(entry);
+                    continue;
+                }
+                try {
+                    onExpiry.accept(entry.item);
+                } catch (RuntimeException e) {
+                    // Keep the ticker alive; a failing callback must not stop other items from expiring.
+                    log.warn("Expiry callback failed", e);
+                }
+            }
+            processedTick = tick;
+        }
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+}
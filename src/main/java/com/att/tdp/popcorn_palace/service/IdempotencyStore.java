@@ -0,0 +1,242 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.model.IdempotencyRecord;
+import com.att.tdp.popcorn_palace.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the responses of requests made with an Idempotency-Key, so that retries are answered without running
+ * the request again.
+ * <p>
+ * Keys are claimed in a size-bounded in-memory cache and in the idempotency_keys table. The table row is inserted
+ * before the request runs, so a concurrent retry that reaches another instance sees the key as in flight rather
+ * than booking twice. Replays are served from memory when possible and fall back to the table, e.g. after a
+ * restart or when the retry lands on another instance.
+ * </p>
+ * <p>
+ * Stored responses expire after the configured TTL. A key whose request never completed, because its instance
+ * died, can be claimed again once the in-flight timeout has passed. Expired rows are purged in passing, at most
+ * once per purge interval.
+ * </p>
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    /**
+     * What to do with a request carrying an Idempotency-Key.
+     */
+    public enum Decision {
+        /**
+         * The key was claimed; run the request and then {@link #complete} or {@link #release} the key.
+         */
+        PROCEED,
+        /**
+         * The request already completed; send the stored response.
+         */
+        REPLAY,
+        /**
+         * The key was used for a different request.
+         */
+        MISMATCH,
+        /**
+         * The first request with this key is still running.
+         */
+        IN_FLIGHT
+    }
+
+    /**
+     * A stored response.
+     */
+    public record StoredResponse(int status, String contentType, String body) {
+    }
+
+    /**
+     * The decision for a request.
+     *
+     * @param key         The Idempotency-Key header.
+     * @param decision    What to do with the request.
+     * @param response    The stored response, if the decision is to replay it.
+     * @param fingerprint The fingerprint of the request.
+     * @param claimedAt   When the key was claimed, if the decision is to proceed; identifies the claim.
+     */
+    public record Claim(String key, Decision decision, StoredResponse response, String fingerprint, Instant claimedAt) {
+    }
+
+    private final IdempotencyRecordRepository repository;
+
+    private final PalaceMetrics metrics;
+
+    private final Duration ttl;
+
+    private final Duration inFlightTimeout;
+
+    private final Cache<String, Entry> entries;
+
+    private final AtomicLong nextPurgeMillis = new AtomicLong();
+
+    public IdempotencyStore(IdempotencyRecordRepository repository, PalaceMetrics metrics,
+                            @Value("${popcorn-palace.idempotency.maximum-size:100000}") long maximumSize,
+                            @Value("${popcorn-palace.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${popcorn-palace.idempotency.in-flight-timeout:1m}") Duration inFlightTimeout) {
+        this.repository = repository;
+        this.metrics = metrics;
+        this.ttl = ttl;
+        this.inFlightTimeout = inFlightTimeout;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Decide how to handle a request with an Idempotency-Key, claiming the key if it has not been used.
+     *
+     * @param key         The Idempotency-Key header.
+     * @param fingerprint The fingerprint of the request method, path and body.
+     * @return The decision, with the stored response for a replay.
+     */
+    public Claim claim(String key, String fingerprint) {
+        purgeExpired();
+        // Truncated to the precision of the database column, so the claim row can be matched later.
+        Entry claimed = new Entry(fingerprint, Instant.now().truncatedTo(ChronoUnit.MICROS), null);
+        Entry existing = entries.asMap().putIfAbsent(key, claimed);
+        if (existing == null) {
+            existing = claimInDatabase(key, claimed);
+            if (existing == null) {
+                return record(new Claim(key, Decision.PROCEED, null, fingerprint, claimed.createdAt));
+            }
+        }
+        return record(decide(key, existing, fingerprint));
+    }
+
+    /**
+     * Store the response of a request that claimed its key.
+     *
+     * @param claim    The claim returned for the request, with decision {@link Decision#PROCEED}.
+     * @param response The response to replay on retries.
+     * @throws RuntimeException If the response could not be written to the table; it is still replayed from memory.
+     */
+    public void complete(Claim claim, StoredResponse response) {
+        if (response.body().length() > IdempotencyRecord.MAX_BODY_LENGTH) {
+            log.atWarn().addKeyValue("length", response.body().length()).log("Response too large to store for replay");
+            release(claim);
+            return;
+        }
+        // Remember the response first: the request has committed, so a retry must be replayed even if the write fails.
+        entries.put(claim.key(), new Entry(claim.fingerprint(), claim.claimedAt(), response));
+        repository.complete(claim.key(), response.status(), response.contentType(), response.body());
+    }
+
+    /**
+     * Give up a claimed key without storing a response, e.g. after a server error, so the request can be retried.
+     *
+     * @param claim The claim returned for the request, with decision {@link Decision#PROCEED}.
+     */
+    public void release(Claim claim) {
+        entries.asMap().remove(claim.key(), new Entry(claim.fingerprint(), claim.claimedAt(), null));
+        repository.deleteClaim(claim.key(), claim.claimedAt());
+    }
+
+    /**
+     * Forget all keys held in memory; stored responses are still replayed from the database.
+     */
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Insert the claim row, or load the row that already exists for the key.
+     *
+     * @return null if this request claimed the key, or the existing entry.
+     */
+    private Entry claimInDatabase(String key, Entry claimed) {
+        try {
+            // One retry covers a stale row that is deleted in between.
+            for (int attempt = 0; attempt < 2; attempt++) {
+                if (repository.insertIfAbsent(key, claimed.fingerprint, claimed.createdAt) == 1) {
+                    return null;
+                }
+                Optional<IdempotencyRecord> recordOpt = repository.findById(key);
+                if (recordOpt.isEmpty()) {
+                    continue;
+                }
+                IdempotencyRecord record = recordOpt.get();
+                if (isStale(record)) {
+                    repository.deleteClaim(key, record.getCreatedAt());
+                    continue;
+                }
+                Entry existing = Entry.of(record);
+                if (existing.response != null) {
+                    // Replace the provisional claim so that later retries are answered from memory.
+                    entries.put(key, existing);
+                } else {
+                    // Another instance is running the request; check the table again on the next retry.
+                    entries.asMap().remove(key, claimed);
+                }
+                return existing;
+            }
+        } catch (RuntimeException e) {
+            entries.asMap().remove(key, claimed);
+            throw e;
+        }
+        // Lost the race twice; let the client retry.
+        Entry inFlight = new Entry(claimed.fingerprint, claimed.createdAt, null);
+        entries.asMap().remove(key, claimed);
+        return inFlight;
+    }
+
+    private Claim decide(String key, Entry existing, String fingerprint) {
+        if (!existing.fingerprint.equals(fingerprint)) {
+            return new Claim(key, Decision.MISMATCH, null, fingerprint, null);
+        }
+        if (existing.response == null) {
+            return new Claim(key, Decision.IN_FLIGHT, null, fingerprint, null);
+        }
+        return new Claim(key, Decision.REPLAY, existing.response, fingerprint, null);
+    }
+
+    private boolean isStale(IdempotencyRecord record) {
+        Duration age = Duration.between(record.getCreatedAt(), Instant.now());
+        return age.compareTo(record.getResponseStatus() == null ? inFlightTimeout : ttl) > 0;
+    }
+
+    private Claim record(Claim claim) {
+        metrics.idempotencyDecision(claim.decision().name().toLowerCase());
+        return claim;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        long next = nextPurgeMillis.get();
+        // Purge about every hundredth of the TTL, and only from the request that wins the slot.
+        if (now < next || !nextPurgeMillis.compareAndSet(next, now + Math.max(ttl.toMillis() / 100, 1000))) {
+            return;
+        }
+        int purged = repository.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (purged > 0) {
+            log.atDebug().addKeyValue("purged", purged).log("Purged expired idempotency keys");
+        }
+    }
+
+    private record Entry(String fingerprint, Instant createdAt, StoredResponse response) {
+
+        static Entry of(IdempotencyRecord record) {
+            StoredResponse response = record.getResponseStatus() == null
+                    ? null
+                    : new StoredResponse(record.getResponseStatus(), record.getResponseContentType(),
+                    record.getResponseBody());
+            return new Entry(record.getRequestFingerprint(), record.getCreatedAt(), response);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.model.Movie;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded read cache for movies, keyed by both ID and title.
+ * <p>
+ * The movie catalog changes rarely but is read on almost every write path, so lookups are served from memory
+ * and only fall through to the {@link MovieRepository} on a miss. Entries are evicted by size and by age, and
+ * callers must {@link #evict(Movie)} a movie before changing or deleting it. Every caller gets its own detached
+ * copy of a cached movie, so changing it does not affect other readers until it is saved and put back.
+ * </p>
+ * <p>
+ * Misses are loaded through the cache, which makes a load atomic with evictions of the same ID: a row read before
+ * a concurrent update cannot be cached after that update has evicted it. Puts never replace a newer version of a
+ * movie with an older one. Hit, miss and eviction counts of both caches are published as cache metrics.
+ * </p>
+ */
+@Component
+public class MovieCache implements MeterBinder {
+
+    // Injecting the MovieRepository to load movies on a cache miss.
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private final Cache<Long, Movie> moviesById;
+
+    // Secondary index from title to ID; an entry is only trusted if the movie it points to still has that title.
+    private final Cache<String, Long> idsByTitle;
+
+    public MovieCache(@Value("${popcorn-palace.movies.cache.maximum-size:10000}") long maximumSize,
+                      @Value("${popcorn-palace.movies.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.moviesById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.idsByTitle = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Find a movie by its ID, loading it from the database on a miss.
+     *
+     * @param id The ID of the movie.
+     * @return The movie, or empty if it does not exist.
+     */
+    public Optional<Movie> findById(Long id) {
+        Movie movie = moviesById.get(id, key -> {
+            Movie loaded = movieRepository.findById(key).orElse(null);
+            if (loaded != null) {
+                idsByTitle.put(loaded.getTitle(), key);
+            }
+            return loaded;
+        });
+        return Optional.ofNullable(movie).map(MovieCache::copy);
+    }
+
+    /**
+     * Find a movie by its title, loading it from the database on a miss.
+     *
+     * @param title The title of the movie.
+     * @return The movie, or empty if it does not exist.
+     */
+    public Optional<Movie> findByTitle(String title) {
+        Long id = idsByTitle.getIfPresent(title);
+        if (id != null) {
+            Optional<Movie> cached = findById(id).filter(movie -> title.equals(movie.getTitle()));
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        // Resolve only the ID here, so that the movie itself is loaded atomically by findById.
+        return movieRepository.findIdByTitle(title)
+                .flatMap(this::findById)
+                .filter(movie -> title.equals(movie.getTitle()));
+    }
+
+    /**
+     * Cache a movie that has just been loaded or saved.
+     *
+     * @param movie The persisted movie.
+     */
+    public void put(Movie movie) {
+        moviesById.asMap().merge(movie.getId(), copy(movie),
+                (cached, saved) -> saved.getVersion() >= cached.getVersion() ? saved : cached);
+        idsByTitle.put(movie.getTitle(), movie.getId());
+    }
+
+    /**
+     * Remove a movie from the cache under both its ID and its title.
+     *
+     * @param movie The movie to evict.
+     */
+    public void evict(Movie movie) {
+        moviesById.invalidate(movie.getId());
+        idsByTitle.invalidate(movie.getTitle());
+    }
+
+    /**
+     * Remove a movie from the cache by its ID. Its title entry is left behind but is no longer trusted, since it
+     * only resolves while the movie it points to is cached.
+     *
+     * @param id The ID of the movie to evict.
+     */
+    public void evictById(Long id) {
+        moviesById.invalidate(id);
+    }
+
+    /**
+     * Remove all movies from the cache.
+     */
+    public void invalidateAll() {
+        moviesById.invalidateAll();
+        idsByTitle.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, moviesById, "moviesById");
+        CaffeineCacheMetrics.monitor(registry, idsByTitle, "movieIdsByTitle");
+    }
+
+    /**
+     * @return Hit, miss and eviction statistics of the lookups by ID.
+     */
+    public CacheStats byIdStats() {
+        return moviesById.stats();
+    }
+
+    /**
+     * @return Hit, miss and eviction statistics of the lookups by title.
+     */
+    public CacheStats byTitleStats() {
+        return idsByTitle.stats();
+    }
+
+    private static Movie copy(Movie movie) {
+        Movie copy = new Movie();
+        copy.setId(movie.getId());
+        copy.setTitle(movie.getTitle());
+        copy.setGenre(movie.getGenre());
+        copy.setDuration(movie.getDuration());
+        copy.setRating(movie.getRating());
+        copy.setReleaseYear(movie.getReleaseYear());
+        copy.setVersion(movie.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,335 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.MovieImportReport;
+import com.att.tdp.popcorn_palace.model.Movie;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.JDBCException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of movies from CSV or newline-delimited JSON.
+ * <p>
+ * The input is read one line at a time and collected into batches of {@link #BATCH_SIZE} rows. For each batch
+ * the titles that already exist are looked up with one query, and the remaining movies are persisted in one
+ * transaction, which Hibernate sends as JDBC batches. The persistence context is cleared after every batch,
+ * so memory use depends on the batch size rather than on the size of the input.
+ * </p>
+ * <p>
+ * CSV input starts with a header naming the columns title, genre, duration, rating and releaseYear in any
+ * order. Fields may be quoted with double quotes, but a row may not span several lines.
+ * </p>
+ */
+@Slf4j
+@Component
+public class MovieImporter {
+
+    // Rows persisted per transaction.
+    static final int BATCH_SIZE = 500;
+
+    // SQLState of a unique constraint violation.
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final List<String> CSV_COLUMNS = List.of("title", "genre", "duration", "rating", "releaseyear");
+
+    // Injecting the MovieRepository to look up existing titles once per batch.
+    @Autowired
+    private MovieRepository movieRepository;
+
+    // Imports use their own entity manager, so that clearing it never touches the request's persistence context.
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Import movies from CSV with a header row.
+     *
+     * @param reader The CSV input.
+     * @return The import report.
+     * @throws IOException              if the input cannot be read.
+     * @throws IllegalArgumentException if the header is missing or names unknown or duplicate columns.
+     */
+    public MovieImportReport importCsv(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String header = lines.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        List<String> columns = parseCsvLine(header).stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        if (!new HashSet<>(columns).equals(new HashSet<>(CSV_COLUMNS)) || columns.size() != CSV_COLUMNS.size()) {
+            throw new IllegalArgumentException("CSV header must name the columns " + CSV_COLUMNS + ", found " + columns);
+        }
+
+        try (Batch batch = new Batch()) {
+            long lineNumber = 1;
+            for (String line; (line = lines.readLine()) != null; ) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    List<String> fields = parseCsvLine(line);
+                    if (fields.size() != columns.size()) {
+                        throw new IllegalArgumentException(
+                                "Expected " + columns.size() + " fields but found " + fields.size());
+                    }
+                    Movie movie = new Movie();
+                    for (int i = 0; i < columns.size(); i++) {
+                        setColumn(movie, columns.get(i), fields.get(i).trim());
+                    }
+                    batch.add(lineNumber, movie);
+                } catch (IllegalArgumentException e) {
+                    batch.report.rowFailed(lineNumber, e.getMessage());
+                }
+            }
+            return batch.finish();
+        }
+    }
+
+    /**
+     * Import movies from newline-delimited JSON, one movie object per line.
+     *
+     * @param reader The NDJSON input.
+     * @return The import report.
+     * @throws IOException if the input cannot be read.
+     */
+    public MovieImportReport importNdjson(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        try (Batch batch = new Batch()) {
+            long lineNumber = 0;
+            for (String line; (line = lines.readLine()) != null; ) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Movie movie = objectMapper.readValue(line, Movie.class);
+                    // IDs are always assigned by the database.
+                    movie.setId(null);
+                    batch.add(lineNumber, movie);
+                } catch (JsonProcessingException e) {
+                    batch.report.rowFailed(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+            return batch.finish();
+        }
+    }
+
+    private static void setColumn(Movie movie, String column, String value) {
+        switch (column) {
+            case "title" -> movie.setTitle(value);
+            case "genre" -> movie.setGenre(value);
+            case "duration" -> movie.setDuration(parseNumber(column, value, Integer::parseInt));
+            case "rating" -> movie.setRating(parseNumber(column, value, Double::parseDouble));
+            case "releaseyear" -> movie.setReleaseYear(parseNumber(column, value, Integer::parseInt));
+            default -> throw new IllegalStateException("Unknown column " + column);
+        }
+    }
+
+    private static <T> T parseNumber(String column, String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+        }
+    }
+
+    /**
+     * Split one CSV line into fields. Fields may be enclosed in double quotes, with {@code ""} standing for a
+     * literal quote.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * The rows waiting to be written, together with the report of the whole import.
+     */
+    private class Batch implements AutoCloseable {
+
+        private final MovieImportReport report = new MovieImportReport();
+
+        private final EntityManager entityManager = entityManagerFactory.createEntityManager();
+
+        private final List<Row> rows = new ArrayList<>(BATCH_SIZE);
+
+        private final Set<String> titles = new HashSet<>();
+
+        void add(long lineNumber, Movie movie) {
+            Set<ConstraintViolation<Movie>> violations = validator.validate(movie);
+            if (!violations.isEmpty()) {
+                report.rowFailed(lineNumber, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            // Titles from earlier batches are already in the database and are caught by the lookup in flush().
+            if (!titles.add(movie.getTitle())) {
+                report.setDuplicates(report.getDuplicates() + 1);
+                return;
+            }
+            rows.add(new Row(lineNumber, movie));
+            if (rows.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        MovieImportReport finish() {
+            flush();
+            log.atInfo()
+                    .addKeyValue("imported", report.getImported())
+                    .addKeyValue("duplicates", report.getDuplicates())
+                    .addKeyValue("failed", report.getFailed())
+                    .log("Movie import finished");
+            return report;
+        }
+
+        private void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            Set<String> existing = new HashSet<>(movieRepository.findExistingTitles(titles));
+            List<Row> fresh = rows.stream().filter(row -> !existing.contains(row.movie().getTitle())).toList();
+            report.setDuplicates(report.getDuplicates() + rows.size() - fresh.size());
+            rows.clear();
+            titles.clear();
+
+            if (persist(fresh.stream().map(Row::movie).toList()) == null) {
+                report.setImported(report.getImported() + fresh.size());
+                return;
+            }
+            // A title was added concurrently or a row broke another constraint; retry one movie at a time to skip it.
+            for (Row row : fresh) {
+                row.movie().setId(null);
+                JDBCException rejection = persist(List.of(row.movie()));
+                if (rejection == null) {
+                    report.setImported(report.getImported() + 1);
+                } else if (isDuplicateTitle(rejection, row.movie())) {
+                    report.setDuplicates(report.getDuplicates() + 1);
+                } else {
+                    report.rowFailed(row.lineNumber(), describe(rejection));
+                }
+            }
+        }
+
+        /**
+         * Persist movies in one transaction.
+         *
+         * @return null if they were stored, or the constraint violation or invalid value that the database rejected
+         * the transaction with.
+         */
+        private JDBCException persist(List<Movie> batch) {
+            try {
+                entityManager.getTransaction().begin();
+                batch.forEach(entityManager::persist);
+                entityManager.getTransaction().commit();
+                return null;
+            } catch (PersistenceException e) {
+                if (entityManager.getTransaction().isActive()) {
+                    entityManager.getTransaction().rollback();
+                }
+                return findRejection(e).orElseThrow(() -> e);
+            } finally {
+                entityManager.clear();
+            }
+        }
+
+        /**
+         * Whether a single movie was rejected because its title already exists, rather than by another unique
+         * constraint such as a primary key handed out twice by a misconfigured sequence.
+         */
+        private boolean isDuplicateTitle(JDBCException rejection, Movie movie) {
+            // Not every dialect sets the kind of a violation, but all report the standard SQLState.
+            boolean unique = rejection instanceof ConstraintViolationException violation
+                    && (violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE
+                    || UNIQUE_VIOLATION.equals(violation.getSQLState()));
+            return unique && movieRepository.findIdByTitle(movie.getTitle()).isPresent();
+        }
+
+        @Override
+        public void close() {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * A movie waiting to be written, with the line it was read from.
+     */
+    private record Row(long lineNumber, Movie movie) {
+    }
+
+    private static Optional<JDBCException> findRejection(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof DataException) {
+                return Optional.of((JDBCException) cause);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String describe(JDBCException rejection) {
+        if (rejection instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+            return "Rejected by database constraint " + violation.getConstraintName();
+        }
+        return rejection instanceof DataException
+                ? "Value rejected by the database, e.g. a field that is too long"
+                : "Rejected by a database constraint";
+    }
+}
@@ -0,0 +1,168 @@
+package com.att.tdp.popcorn_palace.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Business metrics of the booking and scheduling paths.
+ */
+@Component
+public class PalaceMetrics {
+
+    private final Counter seatConflictsInMemory;
+
+    private final Counter seatConflictsInDatabase;
+
+    private final Counter overlapRejections;
+
+    private final DistributionSummary overlapScannedShowtimes;
+
+    private final DistributionSummary writeBehindBatchSizes;
+
+    private final MeterRegistry registry;
+
+    public PalaceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.seatConflictsInMemory = Counter.builder("popcorn.bookings.seat.conflicts")
+                .description("Booking attempts rejected because the seat was taken")
+                .tag("detectedBy", "seat-map")
+                .register(registry);
+        this.seatConflictsInDatabase = Counter.builder("popcorn.bookings.seat.conflicts")
+                .description("Booking attempts rejected because the seat was taken")
+                .tag("detectedBy", "database")
+                .register(registry);
+        this.overlapRejections = Counter.builder("popcorn.showtimes.overlap.rejections")
+                .description("Showtime writes rejected because they overlap another showtime in the theater")
+                .register(registry);
+        this.overlapScannedShowtimes = DistributionSummary.builder("popcorn.showtimes.overlap.scanned")
+                .description("Showtimes visited by one overlap check")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.writeBehindBatchSizes = DistributionSummary.builder("popcorn.bookings.write-behind.batch.size")
+                .description("Bookings journaled with one fsync and flushed in one transaction")
+                .register(registry);
+    }
+
+    /**
+     * Record a booking rejected by the in-memory seat map.
+     */
+    public void seatConflictInMemory() {
+        seatConflictsInMemory.increment();
+    }
+
+    /**
+     * Record a booking that passed the seat map but was rejected by the unique seat constraint.
+     */
+    public void seatConflictInDatabase() {
+        seatConflictsInDatabase.increment();
+    }
+
+    /**
+     * Record a showtime write rejected because of an overlap.
+     */
+    public void overlapRejected() {
+        overlapRejections.increment();
+    }
+
+    /**
+     * Record how many showtimes an overlap check had to visit.
+     *
+     * @param count The number of visited showtimes.
+     */
+    public void overlapScanned(int count) {
+        overlapScannedShowtimes.record(count);
+    }
+
+    /**
+     * Record a seat hold transition.
+     *
+     * @param outcome One of held, confirmed, released or expired.
+     */
+    public void holdOutcome(String outcome) {
+        registry.counter("popcorn.bookings.holds", "outcome", outcome).increment();
+    }
+
+    /**
+     * Record what happened to a booking request for a hot showtime.
+     *
+     * @param outcome One of queued, full, closed, booked, seat_taken, showtime_deleted or failed.
+     */
+    public void waitingRoomOutcome(String outcome) {
+        registry.counter("popcorn.bookings.waiting-room", "outcome", outcome).increment();
+    }
+
+    /**
+     * Publish the number of booking requests waiting in the queues of hot showtimes.
+     *
+     * @param depth Supplies the current number of queued requests.
+     */
+    public void bindWaitingRoomDepth(Supplier<Number> depth) {
+        Gauge.builder("popcorn.bookings.waiting-room.depth", depth)
+                .description("Booking requests queued for hot showtimes and not yet processed")
+                .register(registry);
+    }
+
+    /**
+     * Record a request shed by admission control.
+     *
+     * @param limiter The limiter that rejected it: user, showtime, showtime-read or schedule.
+     */
+    public void admissionRejected(String limiter) {
+        registry.counter("popcorn.admission.rejections", "limiter", limiter).increment();
+    }
+
+    /**
+     * Record how a request with an Idempotency-Key was handled.
+     *
+     * @param decision One of proceed, replay, mismatch or in_flight.
+     */
+    public void idempotencyDecision(String decision) {
+        registry.counter("popcorn.idempotency.requests", "decision", decision).increment();
+    }
+
+    /**
+     * Publish the number of active seat holds.
+     *
+     * @param activeHolds Supplies the current number of holds.
+     */
+    public void bindActiveHolds(Supplier<Number> activeHolds) {
+        Gauge.builder("popcorn.bookings.holds.active", activeHolds)
+                .description("Seats currently held and not yet confirmed, released or expired")
+                .register(registry);
+    }
+
+    /**
+     * Record the size of a write-behind group commit.
+     *
+     * @param size The number of bookings in the group.
+     */
+    public void writeBehindBatch(int size) {
+        writeBehindBatchSizes.record(size);
+    }
+
+    /**
+     * Count journaled bookings that were dropped instead of written, because their seat was already booked or
+     * their showtime no longer exists.
+     *
+     * @param count The number of dropped bookings.
+     */
+    public void writeBehindDropped(int count) {
+        registry.counter("popcorn.bookings.write-behind.dropped").increment(count);
+    }
+
+    /**
+     * Publish the number of bookings accepted by the write-behind path but not yet in the database.
+     *
+     * @param backlog Supplies the current backlog.
+     */
+    public void bindWriteBehindBacklog(Supplier<Number> backlog) {
+        Gauge.builder("popcorn.bookings.write-behind.backlog", backlog)
+                .description("Bookings accepted but not yet written to the bookings table")
+                .register(registry);
+    }
+}
@@ -0,0 +1,132 @@
+package com.att.tdp.popcorn_palace.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free seat occupancy map for a single showtime.
+ * <p>
+ * Seats in the range {@code [0, capacity)} are tracked as bits in an {@link AtomicLongArray} and claimed with a
+ * compare-and-set loop, so two concurrent requests for the same seat can never both win. Seat numbers outside
+ * that range are rare and are tracked in a concurrent set instead, which gives the same claim-once semantics.
+ * </p>
+ */
+public class SeatBitmap {
+
+    private final int capacity;
+
+    private final AtomicLongArray words;
+
+    private final Set<Integer> overflowSeats = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create an empty seat map.
+     *
+     * @param capacity The number of seats tracked in the bitmap itself.
+     */
+    public SeatBitmap(int capacity) {
+        this.capacity = capacity;
+        this.words = new AtomicLongArray((capacity + 63) >>> 6);
+    }
+
+    /**
+     * Atomically mark a seat as taken.
+     *
+     * @param seatNumber The seat to claim.
+     * @return true if this call claimed the seat, false if it was already taken.
+     */
+    public boolean claim(int seatNumber) {
+        if (!inRange(seatNumber)) {
+            return overflowSeats.add(seatNumber);
+        }
+        int index = seatNumber >>> 6;
+        long mask = 1L << seatNumber;
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically mark a seat as free again, e.g. when the booking that claimed it could not be persisted.
+     *
+     * @param seatNumber The seat to release.
+     */
+    public void release(int seatNumber) {
+        if (!inRange(seatNumber)) {
+            overflowSeats.remove(seatNumber);
+            return;
+        }
+        int index = seatNumber >>> 6;
+        long mask = 1L << seatNumber;
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) == 0 || words.compareAndSet(index, current, current & ~mask)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Check whether a seat is currently taken.
+     *
+     * @param seatNumber The seat to check.
+     * @return true if the seat is taken.
+     */
+    public boolean isTaken(int seatNumber) {
+        if (!inRange(seatNumber)) {
+            return overflowSeats.contains(seatNumber);
+        }
+        return (words.get(seatNumber >>> 6) & (1L << seatNumber)) != 0;
+    }
+
+    /**
+     * Take a snapshot of the bitmap as bytes, where seat {@code n} is bit {@code n % 8} of byte {@code n / 8}.
+     * Each 64-seat word is read atomically; the snapshot as a whole is not atomic with concurrent claims.
+     *
+     * @return The occupancy bitmap of seats {@code [0, capacity)}.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[(capacity + 7) >>> 3];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (words.get(i >>> 3) >>> ((i & 7) << 3));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The taken seats outside of {@code [0, capacity)}, in ascending order.
+     */
+    public List<Integer> overflowSeats() {
+        return overflowSeats.stream().sorted().toList();
+    }
+
+    /**
+     * @return The number of taken seats.
+     */
+    public int takenCount() {
+        int count = overflowSeats.size();
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of seats tracked in the bitmap itself.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private boolean inRange(int seatNumber) {
+        return seatNumber >= 0 && seatNumber < capacity;
+    }
+}
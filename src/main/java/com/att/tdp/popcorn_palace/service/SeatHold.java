@@ -0,0 +1,73 @@
+package com.att.tdp.popcorn_palace.service;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A seat temporarily reserved for a user until it is confirmed, released or expires.
+ * <p>
+ * The seat stays claimed in the showtime's {@link SeatBitmap} for the lifetime of the hold. State changes are
+ * compare-and-set transitions out of {@link State#HELD}, so exactly one of confirm, release and expiry wins.
+ * </p>
+ */
+public class SeatHold {
+
+    public enum State { HELD, CONFIRMING, RELEASED, EXPIRED }
+
+    private final UUID holdId;
+
+    private final Long showtimeId;
+
+    private final Integer seatNumber;
+
+    private final String userId;
+
+    private final Instant expiresAt;
+
+    // The seat map the seat was claimed in; kept so that a later eviction of the showtime's map is harmless.
+    private final SeatBitmap seats;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.HELD);
+
+    SeatHold(UUID holdId, Long showtimeId, Integer seatNumber, String userId, Instant expiresAt, SeatBitmap seats) {
+        this.holdId = holdId;
+        this.showtimeId = showtimeId;
+        this.seatNumber = seatNumber;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+        this.seats = seats;
+    }
+
+    public UUID getHoldId() {
+        return holdId;
+    }
+
+    public Long getShowtimeId() {
+        return showtimeId;
+    }
+
+    public Integer getSeatNumber() {
+        return seatNumber;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    SeatBitmap getSeats() {
+        return seats;
+    }
+
+    boolean transition(State from, State to) {
+        return state.compareAndSet(from, to);
+    }
+}
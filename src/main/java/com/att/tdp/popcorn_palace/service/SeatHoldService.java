@@ -0,0 +1,169 @@
+package com.att.tdp.popcorn_palace.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Temporary seat holds that keep a seat taken while the user checks out.
+ * <p>
+ * A hold claims its seat in the showtime's {@link SeatMapRegistry seat map}, so held seats are rejected by the
+ * booking paths exactly like booked ones, without any database write. Holds live in memory only and expire
+ * through a {@link HashedTimingWheel}, which releases the seat unless the hold was confirmed or released first.
+ * </p>
+ */
+@Slf4j
+@Component
+public class SeatHoldService {
+
+    private final SeatMapRegistry seatMapRegistry;
+
+    private final PalaceMetrics metrics;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Duration ttl;
+
+    private final ConcurrentHashMap<UUID, SeatHold> holds = new ConcurrentHashMap<>();
+
+    private final HashedTimingWheel<SeatHold> expiryWheel;
+
+    public SeatHoldService(SeatMapRegistry seatMapRegistry, PalaceMetrics metrics, CacheInvalidationBus invalidationBus,
+                           @Value("${popcorn-palace.booking.holds.ttl:5m}") Duration ttl,
+                           @Value("${popcorn-palace.booking.holds.tick:100ms}") Duration tick,
+                           @Value("${popcorn-palace.booking.holds.wheel-size:512}") int wheelSize) {
+        this.seatMapRegistry = seatMapRegistry;
+        this.metrics = metrics;
+        this.invalidationBus = invalidationBus;
+        this.ttl = ttl;
+        this.expiryWheel = new HashedTimingWheel<>("seat-hold-expiry", tick.toMillis(), wheelSize, this::expire);
+        metrics.bindActiveHolds(holds::size);
+        seatMapRegistry.addUnpersistedSeats(this::heldSeats);
+    }
+
+    /**
+     * Hold a seat of an existing showtime.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @param seatNumber The seat to hold.
+     * @param userId     The user holding the seat.
+     * @return The hold, or empty if the seat is already booked or held.
+     */
+    public Optional<SeatHold> hold(Long showtimeId, Integer seatNumber, String userId) {
+        SeatBitmap seats = seatMapRegistry.forShowtime(showtimeId);
+        if (!seats.claim(seatNumber)) {
+            return Optional.empty();
+        }
+        SeatHold hold = new SeatHold(UUID.randomUUID(), showtimeId, seatNumber, userId, Instant.now().plus(ttl), seats);
+        holds.put(hold.getHoldId(), hold);
+        expiryWheel.schedule(hold, ttl.toMillis());
+        metrics.holdOutcome("held");
+        return Optional.of(hold);
+    }
+
+    /**
+     * Start confirming a hold. The seat stays claimed; the caller must follow up with {@link #confirmed} or
+     * {@link #confirmFailed}.
+     *
+     * @param holdId The ID of the hold.
+     * @return The hold, or empty if it does not exist, has expired or is already being confirmed.
+     */
+    public Optional<SeatHold> beginConfirm(UUID holdId) {
+        SeatHold hold = holds.get(holdId);
+        if (hold == null || !hold.transition(SeatHold.State.HELD, SeatHold.State.CONFIRMING)) {
+            return Optional.empty();
+        }
+        return Optional.of(hold);
+    }
+
+    /**
+     * Finish confirming a hold whose booking has been persisted; the seat stays taken.
+     *
+     * @param hold The hold being confirmed.
+     */
+    public void confirmed(SeatHold hold) {
+        holds.remove(hold.getHoldId());
+        // Holds are not broadcast, so this is the first other instances hear of the seat.
+        invalidationBus.seatsTaken(hold.getShowtimeId(), List.of(hold.getSeatNumber()));
+        metrics.holdOutcome("confirmed");
+    }
+
+    /**
+     * Finish confirming a hold whose booking could not be persisted.
+     *
+     * @param hold        The hold being confirmed.
+     * @param releaseSeat Whether to free the seat; false if the seat turned out to be booked elsewhere.
+     */
+    public void confirmFailed(SeatHold hold, boolean releaseSeat) {
+        hold.transition(SeatHold.State.CONFIRMING, SeatHold.State.RELEASED);
+        holds.remove(hold.getHoldId());
+        if (releaseSeat) {
+            releaseSeat(hold);
+        }
+    }
+
+    /**
+     * Release a hold before it expires.
+     *
+     * @param holdId The ID of the hold.
+     * @return true if the hold was released, false if it does not exist or is no longer held.
+     */
+    public boolean release(UUID holdId) {
+        SeatHold hold = holds.get(holdId);
+        if (hold == null || !hold.transition(SeatHold.State.HELD, SeatHold.State.RELEASED)) {
+            return false;
+        }
+        holds.remove(holdId);
+        releaseSeat(hold);
+        metrics.holdOutcome("released");
+        return true;
+    }
+
+    /**
+     * The seats of a showtime that are held or being confirmed, which a reloaded seat map has to claim again.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @return The held seat numbers.
+     */
+    List<Integer> heldSeats(Long showtimeId) {
+        return holds.values().stream()
+                .filter(hold -> hold.getShowtimeId().equals(showtimeId))
+                .map(SeatHold::getSeatNumber)
+                .toList();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        expiryWheel.close();
+    }
+
+    private void expire(SeatHold hold) {
+        // Confirmed, confirming and released holds are left alone.
+        if (!hold.transition(SeatHold.State.HELD, SeatHold.State.EXPIRED)) {
+            return;
+        }
+        holds.remove(hold.getHoldId());
+        releaseSeat(hold);
+        metrics.holdOutcome("expired");
+        log.atDebug()
+                .addKeyValue("showtimeId", hold.getShowtimeId())
+                .addKeyValue("seatNumber", hold.getSeatNumber())
+                .log("Seat hold expired");
+    }
+
+    private void releaseSeat(SeatHold hold) {
+        hold.getSeats().release(hold.getSeatNumber());
+        // The showtime's seat map may have been reloaded since, and then claimed the seat for this hold as well.
+        seatMapRegistry.findLoaded(hold.getShowtimeId())
+                .filter(seats -> seats != hold.getSeats())
+                .ifPresent(seats -> seats.release(hold.getSeatNumber()));
+    }
+}
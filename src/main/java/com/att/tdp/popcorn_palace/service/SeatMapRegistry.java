@@ -0,0 +1,94 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Holds one {@link SeatBitmap} per showtime and serves as the first-line admission check for bookings.
+ * <p>
+ * A showtime's seat map is warmed from the bookings table the first time it is needed and is then updated in
+ * memory on every booking, so conflicting requests for the same seat are rejected without touching the database.
+ * </p>
+ */
+@Component
+public class SeatMapRegistry {
+
+    // Injecting the BookingRepository to warm seat maps from persisted bookings.
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    // Number of seats per showtime tracked in the bitmap; seats beyond it fall back to a concurrent set.
+    @Value("${popcorn-palace.booking.seat-map.capacity:1024}")
+    private int capacity;
+
+    private final ConcurrentHashMap<Long, SeatBitmap> seatMaps = new ConcurrentHashMap<>();
+
+    // Seats taken in memory but not in the bookings table yet, e.g. holds, which must stay taken when a seat map is
+    // reloaded.
+    private final List<Function<Long, List<Integer>>> unpersistedSeats = new CopyOnWriteArrayList<>();
+
+    /**
+     * Get the seat map for a showtime, loading it from the bookings table on first access.
+     *
+     * @param showtimeId The ID of an existing showtime.
+     * @return The seat map for the showtime.
+     */
+    public SeatBitmap forShowtime(Long showtimeId) {
+        return seatMaps.computeIfAbsent(showtimeId, this::load);
+    }
+
+    /**
+     * Get the seat map for a showtime only if it has already been loaded.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @return The seat map, or empty if it has not been loaded yet.
+     */
+    public Optional<SeatBitmap> findLoaded(Long showtimeId) {
+        return Optional.ofNullable(seatMaps.get(showtimeId));
+    }
+
+    /**
+     * Drop the seat map of a showtime, e.g. after the showtime has been deleted.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void evict(Long showtimeId) {
+        seatMaps.remove(showtimeId);
+    }
+
+    /**
+     * Drop all seat maps, so that they are loaded from the bookings table again, e.g. after seat events from other
+     * instances may have been missed.
+     */
+    public void invalidateAll() {
+        seatMaps.clear();
+    }
+
+    /**
+     * Add a source of seats that are taken but not in the bookings table yet, to be claimed whenever a seat map is
+     * loaded. A seat must stay in its source until it is either released or in the bookings table.
+     *
+     * @param seats The unpersisted seat numbers by showtime ID.
+     */
+    public void addUnpersistedSeats(Function<Long, List<Integer>> seats) {
+        unpersistedSeats.add(seats);
+    }
+
+    private SeatBitmap load(Long showtimeId) {
+        SeatBitmap seats = new SeatBitmap(capacity);
+        // Read the unpersisted seats first: a seat that leaves them once it is written is then found in the table.
+        unpersistedSeats.forEach(source -> source.apply(showtimeId).forEach(seats::claim));
+        for (Integer seatNumber : bookingRepository.findSeatNumbersByShowtimeId(showtimeId)) {
+            seats.claim(seatNumber);
+        }
+        return seats;
+    }
+}
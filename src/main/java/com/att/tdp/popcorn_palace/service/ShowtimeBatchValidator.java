@@ -0,0 +1,93 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.ShowtimeRequest;
+import com.att.tdp.popcorn_palace.dto.ShowtimeSlot;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Overlap validation for a batch of new showtimes, in one sweep per theater.
+ * <p>
+ * The batch is grouped by theater. For each theater, the existing showtimes overlapping the batch's time span
+ * are read with one range query, merged with the batch's showtimes, and sorted by start time. A single pass then
+ * tracks the showtime that ends last so far; any showtime starting before that end overlaps it. This costs
+ * O((n + k) log(n + k)) for n new and k existing showtimes, instead of comparing every new showtime with every
+ * existing one.
+ * </p>
+ */
+@Component
+public class ShowtimeBatchValidator {
+
+    private static final Comparator<Interval> BY_START = Comparator
+            .comparing(Interval::startTime)
+            .thenComparing(Interval::endTime);
+
+    // Injecting the ShowtimeRepository to read the existing showtimes in the batch's time span.
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    // Injecting the ShowtimeScheduleIndex for the longest duration a showtime may have.
+    @Autowired
+    private ShowtimeScheduleIndex scheduleIndex;
+
+    /**
+     * Find the showtimes of a batch that overlap each other or an existing showtime in the same theater.
+     *
+     * @param requests The showtimes to add.
+     * @return One message per conflict found, or an empty list if the batch can be added.
+     */
+    public List<String> findConflicts(List<ShowtimeRequest> requests) {
+        List<String> conflicts = new ArrayList<>();
+        Map<String, List<Interval>> byTheater = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ShowtimeRequest request = requests.get(i);
+            if (!request.getEndTime().isAfter(request.getStartTime())) {
+                conflicts.add("showtimes[" + i + "]: endTime must be after startTime");
+                continue;
+            }
+            if (scheduleIndex.exceedsMaxDuration(request.getStartTime(), request.getEndTime())) {
+                conflicts.add("showtimes[" + i + "]: a showtime cannot be longer than " + scheduleIndex.getMaxDuration());
+                continue;
+            }
+            byTheater.computeIfAbsent(request.getTheater(), theater -> new ArrayList<>())
+                    .add(new Interval(request.getStartTime(), request.getEndTime(), "showtimes[" + i + "]", false));
+        }
+        byTheater.forEach((theater, intervals) -> sweep(theater, intervals, conflicts));
+        return conflicts;
+    }
+
+    private void sweep(String theater, List<Interval> intervals, List<String> conflicts) {
+        // Only existing showtimes within the batch's span can overlap it.
+        LocalDateTime from = intervals.stream().map(Interval::startTime).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime to = intervals.stream().map(Interval::endTime).max(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime earliestStart = from.minus(scheduleIndex.getMaxDuration());
+        for (ShowtimeSlot slot : showtimeRepository.findSlotsOverlapping(theater, earliestStart, from, to)) {
+            intervals.add(new Interval(slot.getStartTime(), slot.getEndTime(), "existing showtime " + slot.getId(), true));
+        }
+        intervals.sort(BY_START);
+
+        Interval latest = null;
+        for (Interval interval : intervals) {
+            if (latest != null && interval.startTime.isBefore(latest.endTime) && !(interval.existing && latest.existing)) {
+                // Report the new showtime first; overlaps among existing showtimes are not the batch's concern.
+                Interval added = interval.existing ? latest : interval;
+                Interval other = interval.existing ? interval : latest;
+                conflicts.add(added.label + " overlaps with " + other.label + " in " + theater);
+            }
+            if (latest == null || interval.endTime.isAfter(latest.endTime)) {
+                latest = interval;
+            }
+        }
+    }
+
+    private record Interval(LocalDateTime startTime, LocalDateTime endTime, String label, boolean existing) {
+    }
+}
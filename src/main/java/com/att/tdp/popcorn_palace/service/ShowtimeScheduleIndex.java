@@ -0,0 +1,129 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.ShowtimeSlot;
+import com.att.tdp.popcorn_palace.model.Showtime;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory overlap index holding one {@link TheaterSchedule} per theater.
+ * <p>
+ * A theater's schedule is loaded from the database the first time the theater is checked (cold start) and is
+ * kept coherent afterwards by the showtime add, update and delete paths, so overlap validation no longer
+ * re-reads every showtime the theater has ever had.
+ * </p>
+ * <p>
+ * When the index is disabled, overlap checks are answered by a single indexed existence query instead.
+ * </p>
+ */
+@Component
+public class ShowtimeScheduleIndex {
+
+    // Injecting the ShowtimeRepository to load theater schedules on first access.
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired
+    private PalaceMetrics metrics;
+
+    // When disabled, every overlap check is evaluated in SQL.
+    @Value("${popcorn-palace.showtimes.schedule-index.enabled:true}")
+    private boolean enabled;
+
+    // Longest showtime accepted; bounds how far back an overlap check in SQL has to look.
+    @Value("${popcorn-palace.showtimes.max-duration:24h}")
+    private Duration maxDuration;
+
+    private final ConcurrentHashMap<String, TheaterSchedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * Check whether [startTime, endTime) overlaps an existing showtime in the theater.
+     *
+     * @param theater   The theater to check.
+     * @param startTime The start of the interval.
+     * @param endTime   The end of the interval.
+     * @param excludeId The ID of a showtime to ignore (the one being updated), or null.
+     * @return true if an overlapping showtime exists.
+     */
+    public boolean overlaps(String theater, LocalDateTime startTime, LocalDateTime endTime, Long excludeId) {
+        if (!enabled) {
+            return showtimeRepository.existsOverlapping(theater, startTime, endTime, excludeId, maxDuration);
+        }
+        return schedules.computeIfAbsent(theater, this::load)
+                .overlaps(startTime, endTime, excludeId, metrics::overlapScanned);
+    }
+
+    /**
+     * @return The longest a showtime may last.
+     */
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Check whether [startTime, endTime) is longer than a showtime may last.
+     *
+     * @param startTime The start of the showtime.
+     * @param endTime   The end of the showtime.
+     * @return true if the showtime is too long.
+     */
+    public boolean exceedsMaxDuration(LocalDateTime startTime, LocalDateTime endTime) {
+        return Duration.between(startTime, endTime).compareTo(maxDuration) > 0;
+    }
+
+    /**
+     * Record a saved showtime. Theaters that have not been loaded yet are skipped, since they will pick up the
+     * showtime from the database when they are.
+     *
+     * @param showtime The persisted showtime.
+     */
+    public void add(Showtime showtime) {
+        schedules.computeIfPresent(showtime.getTheater(), (theater, schedule) -> {
+            schedule.put(showtime.getId(), showtime.getStartTime(), showtime.getEndTime());
+            return schedule;
+        });
+    }
+
+    /**
+     * Remove a showtime from whichever theater schedule currently holds it.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void remove(Long showtimeId) {
+        for (TheaterSchedule schedule : schedules.values()) {
+            if (schedule.remove(showtimeId)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop the schedule of a theater so that it is reloaded from the database on next access.
+     *
+     * @param theater The theater to evict.
+     */
+    public void evict(String theater) {
+        schedules.remove(theater);
+    }
+
+    /**
+     * Drop all theater schedules so that they are reloaded from the database on next access.
+     */
+    public void evictAll() {
+        schedules.clear();
+    }
+
+    private TheaterSchedule load(String theater) {
+        TheaterSchedule schedule = new TheaterSchedule();
+        for (ShowtimeSlot slot : showtimeRepository.findSlotsByTheater(theater)) {
+            schedule.put(slot.getId(), slot.getStartTime(), slot.getEndTime());
+        }
+        return schedule;
+    }
+}
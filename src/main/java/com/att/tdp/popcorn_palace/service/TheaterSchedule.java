@@ -0,0 +1,117 @@
+package com.att.tdp.popcorn_palace.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Sorted schedule of the showtimes in a single theater, used to answer overlap queries in O(log n).
+ * <p>
+ * Showtimes are kept in a {@link TreeSet} ordered by start time. An overlap query only visits showtimes that
+ * start before the end of the requested interval, walking backwards and stopping as soon as a showtime starts
+ * longer than the longest known showtime before the requested start. Since showtimes within a theater do not
+ * overlap, this is usually a single step.
+ * </p>
+ */
+public class TheaterSchedule {
+
+    private static final Comparator<Slot> BY_START = Comparator
+            .comparing((Slot slot) -> slot.startTime)
+            .thenComparingLong(slot -> slot.id);
+
+    private final NavigableSet<Slot> slots = new TreeSet<>(BY_START);
+
+    private final Map<Long, Slot> slotsById = new HashMap<>();
+
+    // Longest showtime ever added; bounds how far back an overlap query has to look.
+    private Duration maxDuration = Duration.ZERO;
+
+    /**
+     * Add a showtime to the schedule, replacing any previous entry with the same ID.
+     *
+     * @param id        The ID of the showtime.
+     * @param startTime The start time of the showtime.
+     * @param endTime   The end time of the showtime.
+     */
+    public synchronized void put(Long id, LocalDateTime startTime, LocalDateTime endTime) {
+        remove(id);
+        Slot slot = new Slot(id, startTime, endTime);
+        slots.add(slot);
+        slotsById.put(id, slot);
+        Duration duration = Duration.between(startTime, endTime);
+        if (duration.compareTo(maxDuration) > 0) {
+            maxDuration = duration;
+        }
+    }
+
+    /**
+     * Remove a showtime from the schedule.
+     *
+     * @param id The ID of the showtime.
+     * @return true if the showtime was part of this schedule.
+     */
+    public synchronized boolean remove(Long id) {
+        Slot slot = slotsById.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        slots.remove(slot);
+        return true;
+    }
+
+    /**
+     * Check whether the interval [startTime, endTime) overlaps any showtime in the schedule.
+     *
+     * @param startTime The start of the interval.
+     * @param endTime   The end of the interval.
+     * @param excludeId The ID of a showtime to ignore (the one being updated), or null.
+     * @return true if an overlapping showtime exists.
+     */
+    public boolean overlaps(LocalDateTime startTime, LocalDateTime endTime, Long excludeId) {
+        return overlaps(startTime, endTime, excludeId, scanned -> { });
+    }
+
+    /**
+     * Check whether the interval [startTime, endTime) overlaps any showtime in the schedule.
+     *
+     * @param startTime The start of the interval.
+     * @param endTime   The end of the interval.
+     * @param excludeId The ID of a showtime to ignore (the one being updated), or null.
+     * @param scanned   Receives the number of showtimes visited by the check.
+     * @return true if an overlapping showtime exists.
+     */
+    public synchronized boolean overlaps(LocalDateTime startTime, LocalDateTime endTime, Long excludeId,
+                                         IntConsumer scanned) {
+        int visited = 0;
+        boolean overlapping = false;
+        // Candidates are the showtimes starting before endTime, visited from the latest start backwards.
+        for (Slot slot : slots.headSet(new Slot(Long.MIN_VALUE, endTime, endTime), false).descendingSet()) {
+            if (!slot.startTime.plus(maxDuration).isAfter(startTime)) {
+                // Neither this showtime nor any earlier one can end after startTime.
+                break;
+            }
+            visited++;
+            if (!slot.id.equals(excludeId) && startTime.isBefore(slot.endTime)) {
+                overlapping = true;
+                break;
+            }
+        }
+        scanned.accept(visited);
+        return overlapping;
+    }
+
+    /**
+     * @return The number of showtimes in the schedule.
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    private record Slot(Long id, LocalDateTime startTime, LocalDateTime endTime) {
+    }
+}
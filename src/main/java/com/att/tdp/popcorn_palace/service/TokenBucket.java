@@ -0,0 +1,77 @@
+package com.att.tdp.popcorn_palace.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket refilled at a fixed rate up to a fixed capacity.
+ * <p>
+ * Implemented as the generic cell rate algorithm: instead of a token count and a refill timestamp, the bucket
+ * keeps a single "theoretical arrival time" in an {@link AtomicLong}, the moment at which the bucket would be full
+ * again. Taking n tokens pushes it n emission intervals into the future and is allowed as long as it stays within
+ * capacity intervals of now. Every acquisition is one compare-and-set, so contended buckets never block.
+ * </p>
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+
+    private final long capacity;
+
+    private final long toleranceNanos;
+
+    // The time, on the System.nanoTime scale, at which the bucket is full again.
+    private final AtomicLong fullAt;
+
+    /**
+     * Create a full bucket.
+     *
+     * @param ratePerSecond The number of tokens added per second.
+     * @param capacity      The maximum number of tokens, i.e. the largest burst allowed.
+     */
+    public TokenBucket(double ratePerSecond, long capacity) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.capacity = capacity;
+        this.toleranceNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Try to take tokens from the bucket. Requests for more tokens than the capacity are charged the capacity.
+     *
+     * @param tokens The number of tokens to take.
+     * @return 0 if the tokens were taken, otherwise the number of nanoseconds until they are available.
+     */
+    public long tryAcquire(int tokens) {
+        long cost = intervalNanos * Math.min(tokens, capacity);
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + cost;
+            long excess = next - now - toleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Give back tokens taken by a request that was not served after all.
+     *
+     * @param tokens The number of tokens to return, as passed to {@link #tryAcquire(int)}.
+     */
+    public void release(int tokens) {
+        // A full bucket is any fullAt in the past, so returning tokens can never overfill it.
+        fullAt.addAndGet(-intervalNanos * Math.min(tokens, capacity));
+    }
+
+    /**
+     * @return The time in nanoseconds an idle bucket takes to refill completely.
+     */
+    public long refillNanos() {
+        return toleranceNanos;
+    }
+}
@@ -0,0 +1,109 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.repository.CatalogVersionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Recently seen versions of showtimes and of the movie catalog, used to answer conditional GETs without a
+ * database lookup.
+ * <p>
+ * Versions are recorded whenever this instance reads or writes a showtime, and are dropped when it changes or
+ * deletes one. Entries expire after a short time, which bounds how long a change made by another instance can go
+ * unnoticed by a revalidating client.
+ * </p>
+ * <p>
+ * The movie catalog has a version of its own in the database, raised after every movie write, so it never repeats
+ * even when a write leaves the catalog's size and IDs as they were.
+ * </p>
+ */
+@Component
+public class VersionCache {
+
+    private static final String MOVIE_CATALOG = "movies";
+
+    private final Cache<Long, Long> showtimeVersions;
+
+    private final Cache<String, Long> catalogVersions;
+
+    private final CatalogVersionRepository catalogVersionRepository;
+
+    public VersionCache(CatalogVersionRepository catalogVersionRepository,
+                        @Value("${popcorn-palace.http-cache.maximum-size:100000}") long maximumSize,
+                        @Value("${popcorn-palace.http-cache.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.showtimeVersions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        this.catalogVersionRepository = catalogVersionRepository;
+        this.catalogVersions = Caffeine.newBuilder()
+                .maximumSize(16)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * @param showtimeId The ID of the showtime.
+     * @return The last known version of the showtime, or empty if it is not cached.
+     */
+    public Optional<Long> showtimeVersion(Long showtimeId) {
+        return Optional.ofNullable(showtimeVersions.getIfPresent(showtimeId));
+    }
+
+    /**
+     * Record the current version of a showtime.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @param version    Its current version.
+     */
+    public void putShowtime(Long showtimeId, Long version) {
+        showtimeVersions.put(showtimeId, version);
+    }
+
+    /**
+     * Forget the version of a deleted or externally changed showtime.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void evictShowtime(Long showtimeId) {
+        showtimeVersions.invalidate(showtimeId);
+    }
+
+    /**
+     * @return The current version of the whole movie catalog, read from the database on a miss.
+     */
+    public long movieCatalogVersion() {
+        return catalogVersions.get(MOVIE_CATALOG, key -> catalogVersionRepository.findVersion(key).orElse(0L));
+    }
+
+    /**
+     * Raise the version of the movie catalog after a movie was added, changed or deleted.
+     */
+    public void bumpMovieCatalog() {
+        if (catalogVersionRepository.increment(MOVIE_CATALOG) == 0) {
+            catalogVersionRepository.insertIfAbsent(MOVIE_CATALOG);
+            catalogVersionRepository.increment(MOVIE_CATALOG);
+        }
+        evictMovieCatalog();
+    }
+
+    /**
+     * Forget the catalog version, e.g. after another instance raised it.
+     */
+    public void evictMovieCatalog() {
+        catalogVersions.invalidate(MOVIE_CATALOG);
+    }
+
+    /**
+     * Forget all versions, e.g. after the database was changed behind the application's back.
+     */
+    public void invalidateAll() {
+        showtimeVersions.invalidateAll();
+        catalogVersions.invalidateAll();
+    }
+}
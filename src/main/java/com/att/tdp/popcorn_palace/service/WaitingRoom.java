@@ -0,0 +1,455 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.BookingResponse;
+import com.att.tdp.popcorn_palace.dto.JournaledBooking;
+import com.att.tdp.popcorn_palace.dto.WaitingRoomTicketResponse;
+import com.att.tdp.popcorn_palace.model.Booking;
+import com.att.tdp.popcorn_palace.model.Showtime;
+import com.att.tdp.popcorn_palace.model.UuidV7;
+import com.att.tdp.popcorn_palace.repository.BookingBatchRepository;
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional virtual waiting room for showtimes flagged as hot.
+ * <p>
+ * Booking requests for a hot showtime do not touch the database themselves. They are put in a bounded queue for
+ * the showtime and answered right away with a ticket carrying their position and estimated wait, or rejected if
+ * the queue is full. A single consumer per showtime takes whatever queued up while it was busy, claims the seats
+ * in the showtime's seat map in arrival order, and inserts the winners as one JDBC batch. Requests that used to
+ * compete for the same rows and connections are thereby turned into one sequential stream of batches.
+ * </p>
+ * <p>
+ * Whether a showtime is hot is stored with the showtime, and opening or closing its waiting room is broadcast
+ * through the {@link CacheInvalidationBus}, so every instance queues its requests. The queues themselves are per
+ * instance. Completed tickets are kept for a limited time so that clients can poll their outcome.
+ * </p>
+ */
+@Slf4j
+@Component
+public class WaitingRoom {
+
+    private static final String SEAT_TAKEN = "Seat already booked for this showtime. Please choose another seat.";
+
+    /**
+     * The outcome of queueing a booking request.
+     *
+     * @param ticket The queued ticket, or null if the request was not queued.
+     * @param closed Whether the request was not queued because the showtime's waiting room is closed, so that it
+     *               has to be booked directly. Otherwise, a missing ticket means that the queue is full.
+     */
+    public record Enqueued(WaitingRoomTicketResponse ticket, boolean closed) {
+    }
+
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired
+    private SeatMapRegistry seatMapRegistry;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingBatchRepository bookingBatchRepository;
+
+    @Autowired
+    private WriteBehindBookingWriter writeBehindBookingWriter;
+
+    @Autowired
+    private PalaceMetrics metrics;
+
+    // Lazy, since the bus also applies waiting room changes made by other instances to this class.
+    @Lazy
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Value("${popcorn-palace.booking.waiting-room.enabled:false}")
+    private boolean enabled;
+
+    // Upper bound of requests waiting for one showtime; further requests are rejected.
+    @Value("${popcorn-palace.booking.waiting-room.capacity:1000}")
+    private int capacity;
+
+    @Value("${popcorn-palace.booking.waiting-room.max-batch-size:100}")
+    private int maxBatchSize;
+
+    // How long the outcome of a ticket can be polled.
+    @Value("${popcorn-palace.booking.waiting-room.ticket-ttl:10m}")
+    private Duration ticketTtl;
+
+    private final ConcurrentHashMap<Long, ShowtimeQueue> queues = new ConcurrentHashMap<>();
+
+    private Cache<UUID, WaitingRoomTicket> tickets;
+
+    @PostConstruct
+    void init() {
+        tickets = Caffeine.newBuilder()
+                .expireAfterWrite(ticketTtl)
+                .build();
+        metrics.bindWaitingRoomDepth(() -> queues.values().stream().mapToInt(queue -> queue.pending.size()).sum());
+        reload();
+    }
+
+    /**
+     * @return true if hot showtimes may be queued.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param showtimeId The ID of the showtime.
+     * @return true if booking requests for the showtime go through its waiting room.
+     */
+    public boolean isOpen(Long showtimeId) {
+        return enabled && queues.containsKey(showtimeId);
+    }
+
+    /**
+     * Flag a showtime as hot, so that its booking requests are queued from now on. The flag is stored with the
+     * showtime; other instances pick it up from the invalidation bus or when they start.
+     *
+     * @param showtimeId The ID of an existing showtime.
+     */
+    public void open(Long showtimeId) {
+        showtimeRepository.updateWaitingRoomOpen(showtimeId, true);
+        startQueue(showtimeId);
+    }
+
+    /**
+     * Stop queueing booking requests for a showtime. Requests that are already queued are still processed.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @return true if the showtime had an open waiting room.
+     */
+    public boolean close(Long showtimeId) {
+        boolean wasOpen = showtimeRepository.updateWaitingRoomOpen(showtimeId, false) > 0;
+        stopQueue(showtimeId);
+        return wasOpen;
+    }
+
+    /**
+     * Start queueing booking requests for a showtime on this instance, e.g. after another instance opened its
+     * waiting room.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void startQueue(Long showtimeId) {
+        if (!enabled) {
+            return;
+        }
+        queues.computeIfAbsent(showtimeId, id -> {
+            ShowtimeQueue queue = new ShowtimeQueue(showtimeRepository.getReferenceById(id));
+            queue.consumer = Thread.ofPlatform().name("waiting-room-" + id).daemon().start(queue::run);
+            log.atInfo().addKeyValue("showtimeId", id).log("Waiting room opened");
+            return queue;
+        });
+    }
+
+    /**
+     * Stop queueing booking requests for a showtime on this instance. Requests that are already queued are still
+     * processed.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void stopQueue(Long showtimeId) {
+        ShowtimeQueue queue = queues.remove(showtimeId);
+        if (queue != null) {
+            queue.close();
+            log.atInfo().addKeyValue("showtimeId", showtimeId).log("Waiting room closed");
+        }
+    }
+
+    /**
+     * Drop the waiting room of a showtime that is being deleted. Queued requests are rejected instead of booked,
+     * and the call returns once the batch the consumer is working on, if any, has been written, so that nothing
+     * is booked for the showtime after it is gone.
+     *
+     * @param showtimeId The ID of the showtime.
+     */
+    public void discard(Long showtimeId) {
+        ShowtimeQueue queue = queues.remove(showtimeId);
+        if (queue == null) {
+            return;
+        }
+        queue.close();
+        List<WaitingRoomTicket> rejected = new ArrayList<>();
+        queue.pending.drainTo(rejected);
+        rejected.forEach(ticket -> queue.reject(ticket, "Showtime was deleted.", "showtime_deleted"));
+        try {
+            queue.consumer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.atInfo()
+                .addKeyValue("showtimeId", showtimeId)
+                .addKeyValue("rejected", rejected.size())
+                .log("Waiting room discarded");
+    }
+
+    /**
+     * Queue requests for exactly the showtimes flagged as hot in the database, e.g. on startup or after this
+     * instance may have missed notifications from the others.
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> flagged = new HashSet<>(showtimeRepository.findIdsWithOpenWaitingRoom());
+        flagged.forEach(this::startQueue);
+        for (Long showtimeId : List.copyOf(queues.keySet())) {
+            if (!flagged.contains(showtimeId)) {
+                stopQueue(showtimeId);
+            }
+        }
+    }
+
+    /**
+     * Queue a booking request for a hot showtime.
+     *
+     * @param showtimeId The ID of the showtime.
+     * @param seatNumber The seat to book.
+     * @param userId     The user booking the seat.
+     * @return The queued ticket, or why the request was not queued: the showtime's queue is full, or its waiting
+     * room has been closed since it was checked.
+     */
+    public Enqueued enqueue(Long showtimeId, Integer seatNumber, String userId) {
+        ShowtimeQueue queue = queues.get(showtimeId);
+        WaitingRoomTicket ticket = new WaitingRoomTicket(UuidV7.next(), showtimeId, seatNumber, userId);
+        if (queue == null || !queue.offer(ticket)) {
+            // A closed queue is never opened again, so a failed offer on a closed queue was not for lack of room.
+            boolean closed = queue == null || !queue.isOpen();
+            metrics.waitingRoomOutcome(closed ? "closed" : "full");
+            return new Enqueued(null, closed);
+        }
+        tickets.put(ticket.getTicketId(), ticket);
+        metrics.waitingRoomOutcome("queued");
+        return new Enqueued(queue.describe(ticket), false);
+    }
+
+    /**
+     * Look up a ticket.
+     *
+     * @param ticketId The ID of the ticket.
+     * @return The ticket with its current position, or empty if it is unknown or has expired.
+     */
+    public Optional<WaitingRoomTicketResponse> status(UUID ticketId) {
+        WaitingRoomTicket ticket = tickets.getIfPresent(ticketId);
+        if (ticket == null) {
+            return Optional.empty();
+        }
+        ShowtimeQueue queue = queues.get(ticket.getShowtimeId());
+        if (queue == null || ticket.getState() != WaitingRoomTicket.State.QUEUED) {
+            return Optional.of(WaitingRoomTicketResponse.of(ticket, null, null));
+        }
+        return Optional.of(queue.describe(ticket));
+    }
+
+    /**
+     * @param showtimeId The ID of the showtime.
+     * @return The estimated time in seconds until the showtime's full queue has been drained, at least 1.
+     */
+    public long estimatedDrainSeconds(Long showtimeId) {
+        ShowtimeQueue queue = queues.get(showtimeId);
+        long nanos = queue == null ? 0 : (long) (queue.pending.size() * queue.nanosPerBooking);
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos) + 1);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        List<ShowtimeQueue> open = new ArrayList<>(queues.values());
+        queues.clear();
+        open.forEach(ShowtimeQueue::close);
+        for (ShowtimeQueue queue : open) {
+            queue.consumer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private class ShowtimeQueue {
+
+        private final Showtime showtime;
+
+        private final BlockingQueue<WaitingRoomTicket> pending = new ArrayBlockingQueue<>(capacity);
+
+        // Number of tickets ever accepted; guarded by this queue's monitor together with the open flag.
+        private long enqueued;
+
+        private boolean open = true;
+
+        // Number of tickets the consumer has finished; position of a ticket is its sequence minus this.
+        private final AtomicLong served = new AtomicLong();
+
+        // Moving average of the time the consumer spends per booking, used for wait estimates.
+        private volatile double nanosPerBooking = TimeUnit.MILLISECONDS.toNanos(5);
+
+        private Thread consumer;
+
+        ShowtimeQueue(Showtime showtime) {
+            this.showtime = showtime;
+        }
+
+        synchronized boolean offer(WaitingRoomTicket ticket) {
+            if (!open) {
+                return false;
+            }
+            ticket.setSequence(enqueued + 1);
+            if (!pending.offer(ticket)) {
+                return false;
+            }
+            enqueued++;
+            return true;
+        }
+
+        synchronized void close() {
+            open = false;
+        }
+
+        private synchronized boolean isOpen() {
+            return open;
+        }
+
+        WaitingRoomTicketResponse describe(WaitingRoomTicket ticket) {
+            long position = Math.max(1, ticket.getSequence() - served.get());
+            return WaitingRoomTicketResponse.of(ticket, position,
+                    TimeUnit.NANOSECONDS.toMillis((long) (position * nanosPerBooking)));
+        }
+
+        void run() {
+            List<WaitingRoomTicket> batch = new ArrayList<>(maxBatchSize);
+            while (isOpen() || !pending.isEmpty()) {
+                try {
+                    WaitingRoomTicket first = pending.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    pending.drainTo(batch, maxBatchSize - 1);
+                    long start = System.nanoTime();
+                    process(batch);
+                    nanosPerBooking = 0.8 * nanosPerBooking + 0.2 * (System.nanoTime() - start) / batch.size();
+                    served.addAndGet(batch.size());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    log.atError().addKeyValue("showtimeId", showtime.getId()).setCause(e).log("Waiting room batch failed");
+                    batch.stream()
+                            .filter(ticket -> ticket.getState() == WaitingRoomTicket.State.QUEUED)
+                            .forEach(ticket -> reject(ticket, "Booking failed. Please try again.", "failed"));
+                    served.addAndGet(batch.size());
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        /**
+         * Claim the seats of a batch in arrival order and insert the bookings of the winners together.
+         */
+        private void process(List<WaitingRoomTicket> batch) {
+            SeatBitmap seats = seatMapRegistry.forShowtime(showtime.getId());
+            List<WaitingRoomTicket> admitted = new ArrayList<>(batch.size());
+            List<Booking> bookings = new ArrayList<>(batch.size());
+            for (WaitingRoomTicket ticket : batch) {
+                if (!seats.claim(ticket.getSeatNumber())) {
+                    metrics.seatConflictInMemory();
+                    reject(ticket, SEAT_TAKEN, "seat_taken");
+                    continue;
+                }
+                Booking booking = new Booking();
+                booking.setBookingId(UuidV7.next());
+                booking.setShowtime(showtime);
+                booking.setSeatNumber(ticket.getSeatNumber());
+                booking.setUserId(ticket.getUserId());
+                admitted.add(ticket);
+                bookings.add(booking);
+            }
+            if (bookings.isEmpty()) {
+                return;
+            }
+
+            try {
+                if (writeBehindBookingWriter.isEnabled()) {
+                    writeBehindBookingWriter.write(bookings.stream().map(JournaledBooking::of).toList());
+                } else {
+                    bookingBatchRepository.insertAll(bookings);
+                }
+            } catch (DataIntegrityViolationException e) {
+                // Another instance booked some of the seats; insert one by one to find out which.
+                insertIndividually(admitted, bookings, seats);
+                return;
+            } catch (RuntimeException e) {
+                bookings.forEach(booking -> seats.release(booking.getSeatNumber()));
+                throw e;
+            }
+            for (int i = 0; i < admitted.size(); i++) {
+                book(admitted.get(i), bookings.get(i));
+            }
+            invalidationBus.seatsTaken(showtime.getId(), bookings.stream().map(Booking::getSeatNumber).toList());
+        }
+
+        private void insertIndividually(List<WaitingRoomTicket> admitted, List<Booking> bookings, SeatBitmap seats) {
+            List<Integer> booked = new ArrayList<>(admitted.size());
+            for (int i = 0; i < admitted.size(); i++) {
+                Booking booking = bookings.get(i);
+                int inserted;
+                try {
+                    inserted = bookingRepository.insertIfSeatFree(booking.getBookingId(), showtime.getId(),
+                            booking.getSeatNumber(), booking.getUserId());
+                } catch (RuntimeException e) {
+                    seats.release(booking.getSeatNumber());
+                    reject(admitted.get(i), "Booking failed. Please try again.", "failed");
+                    continue;
+                }
+                if (inserted == 0) {
+                    // The seat was booked by another instance; it stays claimed in the seat map.
+                    metrics.seatConflictInDatabase();
+                    reject(admitted.get(i), SEAT_TAKEN, "seat_taken");
+                } else {
+                    book(admitted.get(i), booking);
+                    booked.add(booking.getSeatNumber());
+                }
+            }
+            if (!booked.isEmpty()) {
+                invalidationBus.seatsTaken(showtime.getId(), booked);
+            }
+        }
+
+        private void book(WaitingRoomTicket ticket, Booking booking) {
+            ticket.booked(BookingResponse.of(booking));
+            // Refresh the expiry, so the outcome can be polled for the full ticket TTL.
+            tickets.put(ticket.getTicketId(), ticket);
+            metrics.waitingRoomOutcome("booked");
+        }
+
+        private void reject(WaitingRoomTicket ticket, String message, String outcome) {
+            ticket.rejected(message);
+            tickets.put(ticket.getTicketId(), ticket);
+            metrics.waitingRoomOutcome(outcome);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.BookingResponse;
+
+import java.util.UUID;
+
+/**
+ * A booking request waiting in the queue of a hot showtime.
+ * <p>
+ * Tickets are created by request threads and completed by the showtime's queue consumer, which is the only
+ * writer of the outcome fields.
+ * </p>
+ */
+public class WaitingRoomTicket {
+
+    public enum State { QUEUED, BOOKED, REJECTED }
+
+    private final UUID ticketId;
+
+    private final Long showtimeId;
+
+    private final Integer seatNumber;
+
+    private final String userId;
+
+    // Position of the ticket in the order of arrival at its showtime's queue, starting at 1.
+    private long sequence;
+
+    private volatile State state = State.QUEUED;
+
+    private volatile BookingResponse booking;
+
+    private volatile String message;
+
+    WaitingRoomTicket(UUID ticketId, Long showtimeId, Integer seatNumber, String userId) {
+        this.ticketId = ticketId;
+        this.showtimeId = showtimeId;
+        this.seatNumber = seatNumber;
+        this.userId = userId;
+    }
+
+    public UUID getTicketId() {
+        return ticketId;
+    }
+
+    public Long getShowtimeId() {
+        return showtimeId;
+    }
+
+    public Integer getSeatNumber() {
+        return seatNumber;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return The booking, once the ticket is {@link State#BOOKED}.
+     */
+    public BookingResponse getBooking() {
+        return booking;
+    }
+
+    /**
+     * @return Why the ticket was {@link State#REJECTED}.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    void booked(BookingResponse booking) {
+        this.booking = booking;
+        this.state = State.BOOKED;
+    }
+
+    void rejected(String message) {
+        this.message = message;
+        this.state = State.REJECTED;
+    }
+}
@@ -0,0 +1,364 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.dto.JournaledBooking;
+import com.att.tdp.popcorn_palace.repository.BookingBatchRepository;
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind path for bookings admitted by the in-memory seat map.
+ * <p>
+ * When enabled, requests hand their bookings to a single writer thread and wait until it has appended them to
+ * a local {@link BookingJournal}. The writer takes everything that queued up while it was busy, appends it with
+ * one fsync, acknowledges those requests, and then inserts the same bookings into the bookings table as one JDBC
+ * batch in one transaction. Throughput therefore follows the batch size rather than the commit latency of
+ * individual inserts. The journal is truncated once its bookings are in the database and is replayed on startup,
+ * so bookings acknowledged before a crash are not lost.
+ * </p>
+ * <p>
+ * A showtime is retired here before it is deleted: its bookings submitted until then reach the database ahead of
+ * the delete, and later ones are rejected instead of being acknowledged. Seats of bookings that are not in the
+ * database yet stay claimed when a seat map is reloaded. A journaled booking that still cannot be inserted, e.g.
+ * because another instance booked the seat, is logged with its ID, counted and dropped rather than retried, so it
+ * cannot hold back the bookings journaled after it.
+ * </p>
+ * <p>
+ * The seat map is the only admission check on this path, so it assumes a single application instance.
+ * </p>
+ */
+@Slf4j
+@Component
+public class WriteBehindBookingWriter {
+
+    // Injecting the BookingBatchRepository to flush journaled bookings in batches.
+    @Autowired
+    private BookingBatchRepository bookingBatchRepository;
+
+    // Injecting the BookingRepository to find out which journaled bookings were skipped by the database.
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SeatMapRegistry seatMapRegistry;
+
+    @Autowired
+    private PalaceMetrics metrics;
+
+    @Value("${popcorn-palace.booking.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${popcorn-palace.booking.write-behind.journal:data/bookings.journal}")
+    private Path journalPath;
+
+    // Upper bound of bookings appended and flushed together.
+    @Value("${popcorn-palace.booking.write-behind.max-batch-size:500}")
+    private int maxBatchSize;
+
+    // Requests wait for their bookings to be journaled, so the queue never holds more than the in-flight requests.
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    // Journaled bookings that are not in the database yet; only touched by the writer thread.
+    private final List<JournaledBooking> unflushed = new ArrayList<>();
+
+    // Submitted bookings that are not in the database yet, whether queued or journaled.
+    private final Set<JournaledBooking> unpersisted = ConcurrentHashMap.newKeySet();
+
+    // Showtimes that are being or have been deleted; only touched by the writer thread. Showtime IDs are not reused.
+    private final Set<Long> retiredShowtimes = new HashSet<>();
+
+    private BookingJournal journal;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    /**
+     * @return true if bookings should be submitted to this writer instead of being inserted directly.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Submit bookings to be journaled and written to the database.
+     *
+     * @param bookings The bookings to write.
+     * @return A future completing once the bookings are durable in the journal, or failing if they could not be
+     * journaled.
+     */
+    public CompletableFuture<Void> submit(List<JournaledBooking> bookings) {
+        unpersisted.addAll(bookings);
+        CompletableFuture<Void> done = enqueue(new PendingWrite(bookings, new CompletableFuture<>(), false, null));
+        done.whenComplete((ignored, e) -> {
+            if (e != null) {
+                bookings.forEach(unpersisted::remove);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Submit bookings and wait until they are journaled.
+     *
+     * @param bookings The bookings to write.
+     * @throws DataIntegrityViolationException if the showtime of a booking has been deleted.
+     */
+    public void write(List<JournaledBooking> bookings) {
+        try {
+            submit(bookings).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for every booking submitted so far to be written to the database.
+     *
+     * @return A future completing once the bookings submitted before this call are in the database, or failing if
+     * they could not be written. Completes right away if the writer is disabled.
+     */
+    public CompletableFuture<Void> drain() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(new PendingWrite(List.of(), new CompletableFuture<>(), true, null));
+    }
+
+    /**
+     * Wait for every booking submitted so far to be written to the database before a showtime is deleted, and
+     * reject bookings of the showtime submitted from now on, which the delete would orphan.
+     *
+     * @param showtimeId The ID of the showtime about to be deleted.
+     * @return A future completing once the bookings submitted before this call are in the database, or failing if
+     * they could not be written. Completes right away if the writer is disabled.
+     */
+    public CompletableFuture<Void> retireShowtime(Long showtimeId) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(new PendingWrite(List.of(), new CompletableFuture<>(), true, showtimeId));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite pending) {
+        if (!running) {
+            pending.done.completeExceptionally(new IllegalStateException("Write-behind booking writer is not running"));
+            return pending.done;
+        }
+        queue.add(pending);
+        return pending.done;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journal = new BookingJournal(journalPath);
+
+        // Recover bookings that were acknowledged but not flushed before the last shutdown. If they cannot be
+        // written yet, the writer keeps retrying them instead of failing startup.
+        List<JournaledBooking> recovered = journal.readAll();
+        if (!recovered.isEmpty()) {
+            log.atInfo().addKeyValue("journaled", recovered.size()).log("Replaying booking journal");
+            unflushed.addAll(recovered);
+            unpersisted.addAll(recovered);
+            flush();
+        }
+
+        seatMapRegistry.addUnpersistedSeats(showtimeId -> unpersisted.stream()
+                .filter(booking -> booking.showtimeId().equals(showtimeId))
+                .map(JournaledBooking::seatNumber)
+                .toList());
+        metrics.bindWriteBehindBacklog(() -> queue.size() + unflushed.size());
+        running = true;
+        writer = Thread.ofPlatform().name("booking-write-behind").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        if (writer == null) {
+            return;
+        }
+        // Let the writer drain the queue before closing the journal.
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            // Closing the journal would fail the writer's next append or truncate; it is replayed on the next start.
+            log.atWarn().log("Write-behind booking writer did not stop in time, leaving its journal open");
+            return;
+        }
+        journal.close();
+        // Fail anything submitted while the writer was stopping, so that no request waits forever.
+        for (PendingWrite pending; (pending = queue.poll()) != null; ) {
+            pending.done.completeExceptionally(new IllegalStateException("Write-behind booking writer is not running"));
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // Nothing new; retry bookings left over from a failed flush.
+                    flush();
+                    continue;
+                }
+                batch.add(first);
+                // Take whole requests while their bookings fit into the batch; only this thread polls the queue.
+                int size = first.bookings.size();
+                for (PendingWrite next; (next = queue.peek()) != null
+                        && size + next.bookings.size() <= maxBatchSize; ) {
+                    batch.add(queue.poll());
+                    size += next.bookings.size();
+                }
+                append(batch);
+                flush();
+                completeDrains(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+        flush();
+    }
+
+    private void append(List<PendingWrite> batch) {
+        List<PendingWrite> accepted = new ArrayList<>();
+        List<JournaledBooking> bookings = new ArrayList<>();
+        for (PendingWrite pending : batch) {
+            if (pending.retiredShowtimeId != null) {
+                retiredShowtimes.add(pending.retiredShowtimeId);
+            }
+            if (pending.drain) {
+                continue;
+            }
+            if (pending.bookings.stream().anyMatch(booking -> retiredShowtimes.contains(booking.showtimeId()))) {
+                pending.done.completeExceptionally(new DataIntegrityViolationException("Showtime has been deleted"));
+                continue;
+            }
+            accepted.add(pending);
+            bookings.addAll(pending.bookings);
+        }
+        if (bookings.isEmpty()) {
+            return;
+        }
+        try {
+            journal.append(bookings);
+        } catch (IOException e) {
+            log.error("Failed to append bookings to the journal", e);
+            accepted.forEach(pending -> pending.done.completeExceptionally(new UncheckedIOException(e)));
+            return;
+        }
+        unflushed.addAll(bookings);
+        metrics.writeBehindBatch(bookings.size());
+        accepted.forEach(pending -> pending.done.complete(null));
+    }
+
+    private void completeDrains(List<PendingWrite> batch) {
+        for (PendingWrite pending : batch) {
+            if (!pending.drain) {
+                continue;
+            }
+            if (unflushed.isEmpty()) {
+                pending.done.complete(null);
+            } else {
+                pending.done.completeExceptionally(
+                        new IllegalStateException("Journaled bookings could not be written to the database"));
+            }
+        }
+    }
+
+    private void flush() {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        try {
+            int inserted;
+            try {
+                inserted = bookingBatchRepository.insertIgnoringConflicts(unflushed);
+            } catch (DataIntegrityViolationException e) {
+                // A showtime was deleted while its bookings were being inserted; isolate the offending rows.
+                inserted = insertIndividually();
+            }
+            if (inserted < unflushed.size()) {
+                // Rows were skipped or not counted; skipped ones are either already in the table from an earlier
+                // replay, or lost.
+                reportDropped();
+            }
+            unflushed.forEach(unpersisted::remove);
+            unflushed.clear();
+            journal.truncate();
+        } catch (IOException | RuntimeException e) {
+            // The bookings stay in the journal and in memory, and are retried on the next pass.
+            log.atWarn().setCause(e).log("Failed to flush journaled bookings");
+        }
+    }
+
+    private int insertIndividually() {
+        int inserted = 0;
+        for (JournaledBooking booking : unflushed) {
+            try {
+                inserted += bookingBatchRepository.insertIgnoringConflicts(List.of(booking));
+            } catch (DataIntegrityViolationException e) {
+                // Reported as dropped once the whole batch has been tried.
+                log.atDebug().addKeyValue("bookingId", booking.bookingId()).setCause(e).log("Journaled booking rejected");
+            }
+        }
+        return inserted;
+    }
+
+    private void reportDropped() {
+        Set<UUID> stored = new HashSet<>(bookingRepository.findExistingBookingIds(
+                unflushed.stream().map(JournaledBooking::bookingId).toList()));
+        List<JournaledBooking> dropped = unflushed.stream()
+                .filter(booking -> !stored.contains(booking.bookingId()))
+                .toList();
+        for (JournaledBooking booking : dropped) {
+            // The booking was acknowledged, so every one is logged for follow-up with the user.
+            log.atError()
+                    .addKeyValue("bookingId", booking.bookingId())
+                    .addKeyValue("showtimeId", booking.showtimeId())
+                    .addKeyValue("seatNumber", booking.seatNumber())
+                    .addKeyValue("userId", booking.userId())
+                    .log("Dropped acknowledged booking whose seat was booked elsewhere or whose showtime was deleted");
+        }
+        if (!dropped.isEmpty()) {
+            metrics.writeBehindDropped(dropped.size());
+        }
+    }
+
+    /**
+     * Bookings submitted together, or a drain request ({@code drain}) that completes once everything queued
+     * before it has been flushed and, with a {@code retiredShowtimeId}, rejects that showtime's later bookings.
+     */
+    private record PendingWrite(List<JournaledBooking> bookings, CompletableFuture<Void> done, boolean drain,
+                                Long retiredShowtimeId) {
+    }
+}
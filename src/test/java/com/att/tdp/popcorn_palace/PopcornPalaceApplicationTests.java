@@ -1,28 +1,92 @@
 package com.att.tdp.popcorn_palace;
 
+import com.att.tdp.popcorn_palace.config.ConcurrencyLimitFilter;
+import com.att.tdp.popcorn_palace.config.IdempotencyFilter;
+import com.att.tdp.popcorn_palace.dto.CacheInvalidation;
+import com.att.tdp.popcorn_palace.dto.JournaledBooking;
 import com.att.tdp.popcorn_palace.model.Movie;
+import com.att.tdp.popcorn_palace.repository.BookingBatchRepository;
 import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import com.att.tdp.popcorn_palace.repository.CatalogVersionRepository;
+import com.att.tdp.popcorn_palace.repository.IdempotencyRecordRepository;
 import com.att.tdp.popcorn_palace.repository.MovieRepository;
 import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.service.AdmissionControl;
+import com.att.tdp.popcorn_palace.service.BookingJournal;
+import com.att.tdp.popcorn_palace.service.CacheInvalidationBus;
+import com.att.tdp.popcorn_palace.service.IdempotencyStore;
+import com.att.tdp.popcorn_palace.service.MovieCache;
+import com.att.tdp.popcorn_palace.service.PalaceMetrics;
+import com.att.tdp.popcorn_palace.service.SeatBitmap;
+import com.att.tdp.popcorn_palace.service.SeatMapRegistry;
+import com.att.tdp.popcorn_palace.service.ShowtimeScheduleIndex;
+import com.att.tdp.popcorn_palace.service.VersionCache;
+import com.att.tdp.popcorn_palace.service.WaitingRoom;
+import com.att.tdp.popcorn_palace.service.WriteBehindBookingWriter;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.json.JsonCompareMode;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
@@ -45,6 +109,51 @@ public class PopcornPalaceApplicationTests {
 	@Autowired
 	private BookingRepository bookingRepository;
 
+	@Autowired
+	private BookingBatchRepository bookingBatchRepository;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private IdempotencyFilter idempotencyFilter;
+
+	@Autowired
+	private CatalogVersionRepository catalogVersionRepository;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private PalaceMetrics palaceMetrics;
+
+	@Autowired
+	private ShowtimeScheduleIndex scheduleIndex;
+
+	@Autowired
+	private MovieCache movieCache;
+
+	@Autowired
+	private VersionCache versionCache;
+
+	@Autowired
+	private CacheInvalidationBus invalidationBus;
+
+	@Autowired
+	private WaitingRoom waitingRoom;
+
+	@Autowired
+	private SeatMapRegistry seatMapRegistry;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
 	@Autowired
 	private MockMvc mockMvc;
 
@@ -68,6 +177,13 @@ public class PopcornPalaceApplicationTests {
 		if (movieRepository != null) {
 			movieRepository.deleteAll();
 		}
+		idempotencyRecordRepository.deleteAll();
+		// The rows above were removed behind the API's back, so the in-memory state must be reloaded.
+		scheduleIndex.evictAll();
+		movieCache.invalidateAll();
+		versionCache.invalidateAll();
+		idempotencyStore.invalidateAll();
+		admissionControl.reset();
 	}
 
 	// --------------------------
@@ -135,6 +251,44 @@ public class PopcornPalaceApplicationTests {
 		return objectMapper.readValue(response, Map.class);
 	}
 
+	/**
+	 * Helper method to build a showtime payload with a price of 20.
+	 *
+	 * @param movieId   The ID of the movie.
+	 * @param theater   The theater of the showtime.
+	 * @param startTime The start time of the showtime.
+	 * @param endTime   The end time of the showtime.
+	 * @return A Map representing the showtime payload.
+	 */
+	private Map<String, Object> buildShowtimePayload(Long movieId, String theater, LocalDateTime startTime, LocalDateTime endTime) {
+		Map<String, Object> payload = new HashMap<>();
+		payload.put("movieId", movieId);
+		payload.put("theater", theater);
+		payload.put("startTime", startTime);
+		payload.put("endTime", endTime);
+		payload.put("price", 20.0);
+		return payload;
+	}
+
+	/**
+	 * Helper method to hold a seat via the API.
+	 *
+	 * @param showtimeId The ID of the showtime.
+	 * @param seatNumber The seat number to hold.
+	 * @param userId     The ID of the user holding the seat.
+	 * @return The ID of the created hold.
+	 * @throws Exception if the API call fails.
+	 */
+	private String holdSeat(Integer showtimeId, int seatNumber, String userId) throws Exception {
+		MvcResult result = mockMvc.perform(post("/bookings/holds")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, seatNumber, userId))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.state", is("HELD")))
+				.andReturn();
+		return objectMapper.readTree(result.getResponse().getContentAsString()).get("holdId").asText();
+	}
+
 	/**
 	 * Helper method to build a booking payload.
 	 *
@@ -151,12 +305,124 @@ public class PopcornPalaceApplicationTests {
 		return payload;
 	}
 
+	/**
+	 * Helper method to read the current ETag of the movie catalog.
+	 *
+	 * @return The ETag of GET /movies/all.
+	 * @throws Exception if the API call fails.
+	 */
+	private String catalogETag() throws Exception {
+		return mockMvc.perform(get("/movies/all"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+	}
+
+	/**
+	 * Helper method to start a cache invalidation bus against PostgreSQL, standing in for another instance that
+	 * shares this context's caches.
+	 *
+	 * @param url      The JDBC URL of the PostgreSQL database.
+	 * @param user     The database user.
+	 * @param password The database password.
+	 * @return The started bus; stop it with its stop method.
+	 */
+	private CacheInvalidationBus postgresBus(String url, String user, String password) {
+		CacheInvalidationBus bus = new CacheInvalidationBus();
+		ReflectionTestUtils.setField(bus, "jdbcTemplate", new JdbcTemplate(new DriverManagerDataSource(url, user, password)));
+		ReflectionTestUtils.setField(bus, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(bus, "movieCache", movieCache);
+		ReflectionTestUtils.setField(bus, "versionCache", versionCache);
+		ReflectionTestUtils.setField(bus, "scheduleIndex", scheduleIndex);
+		ReflectionTestUtils.setField(bus, "seatMapRegistry", seatMapRegistry);
+		ReflectionTestUtils.setField(bus, "waitingRoom", waitingRoom);
+		ReflectionTestUtils.setField(bus, "enabled", true);
+		ReflectionTestUtils.setField(bus, "pollTimeout", Duration.ofMillis(100));
+		ReflectionTestUtils.setField(bus, "url", url);
+		ReflectionTestUtils.setField(bus, "username", user);
+		ReflectionTestUtils.setField(bus, "password", password);
+		ReflectionTestUtils.invokeMethod(bus, "start");
+		return bus;
+	}
+
 	// --------------------------
 	// Integration Tests for Movie API
 	// --------------------------
 	@Nested
 	class MovieControllerTests {
 
+		/**
+		 * Test importing movies from CSV and NDJSON, skipping existing titles and reporting invalid rows.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testImportMoviesFromCsvAndNdjson() throws Exception {
+			Movie existing = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+
+			String csv = String.join("\n",
+					"title,genre,duration,rating,releaseYear",
+					"\"Crouching Tiger, Hidden Dragon\",Action,120,7.9,2000",
+					existing.getTitle() + ",Sci-Fi,148,8.8,2010",
+					"Heat,Crime,170,8.3,1995",
+					"Heat,Crime,170,8.3,1995",
+					"Alien,Horror,not-a-number,8.5,1979",
+					",Drama,100,7.0,2001",
+					"Too,Few,Fields");
+			mockMvc.perform(post("/movies/import")
+							.contentType("text/csv")
+							.content(csv))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.imported", is(2)))
+					.andExpect(jsonPath("$.duplicates", is(2)))
+					.andExpect(jsonPath("$.failed", is(3)))
+					.andExpect(jsonPath("$.errors[*].line", contains(6, 7, 8)))
+					.andExpect(jsonPath("$.errors[0].message", is("Invalid duration: 'not-a-number'")));
+			assertTrue(movieRepository.findByTitle("Crouching Tiger, Hidden Dragon").isPresent());
+
+			String ndjson = String.join("\n",
+					"{\"title\":\"Arrival\",\"genre\":\"Sci-Fi\",\"duration\":116,\"rating\":7.9,\"releaseYear\":2016}",
+					"{\"title\":\"Heat\",\"genre\":\"Crime\",\"duration\":170,\"rating\":8.3,\"releaseYear\":1995}",
+					"{not json");
+			mockMvc.perform(post("/movies/import")
+							.contentType("application/x-ndjson")
+							.content(ndjson))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.imported", is(1)))
+					.andExpect(jsonPath("$.duplicates", is(1)))
+					.andExpect(jsonPath("$.errors[0].line", is(3)));
+			assertEquals(4, movieRepository.count());
+
+			// A CSV body without the expected header is rejected as a whole.
+			mockMvc.perform(post("/movies/import")
+							.contentType("text/csv")
+							.content("name,genre\nHeat,Crime"))
+					.andExpect(status().isBadRequest());
+		}
+
+		/**
+		 * Test that a row the database rejects for a reason other than a duplicate title is reported as a failed
+		 * row with its line number, while the other rows of its batch are still imported.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testImportReportsRowsRejectedByDatabase() throws Exception {
+			String csv = String.join("\n",
+					"title,genre,duration,rating,releaseYear",
+					"Heat,Crime,170,8.3,1995",
+					"Alien," + "Horror".repeat(50) + ",117,8.5,1979",
+					"Arrival,Sci-Fi,116,7.9,2016");
+			mockMvc.perform(post("/movies/import")
+							.contentType("text/csv")
+							.content(csv))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.imported", is(2)))
+					.andExpect(jsonPath("$.duplicates", is(0)))
+					.andExpect(jsonPath("$.failed", is(1)))
+					.andExpect(jsonPath("$.errors[0].line", is(3)));
+			assertFalse(movieRepository.findByTitle("Alien").isPresent());
+		}
+
 		/**
 		 * Test adding multiple movies and then retrieving them.
 		 *
@@ -176,6 +442,140 @@ public class PopcornPalaceApplicationTests {
 					.andExpect(jsonPath("$[?(@.title=='" + movie2.getTitle() + "')]").exists());
 		}
 
+		/**
+		 * Test paging through the catalog with the keyset cursor and streaming it as NDJSON.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testPaginatedAndStreamedListing() throws Exception {
+			Movie movie1 = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			Movie movie2 = addTestMovie("Matrix", "Sci-Fi", 136, 8.7, 1999);
+			Movie movie3 = addTestMovie("Alien", "Sci-Fi", 117, 8.5, 1979);
+
+			// First page holds two movies and points at the next page.
+			mockMvc.perform(get("/movies").param("limit", "2"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.items", hasSize(2)))
+					.andExpect(jsonPath("$.items[0].title", is(movie1.getTitle())))
+					.andExpect(jsonPath("$.nextCursor", is(movie2.getId().intValue())));
+
+			// The last page holds the remaining movie and has no cursor.
+			mockMvc.perform(get("/movies").param("after", movie2.getId().toString()).param("limit", "2"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.items", hasSize(1)))
+					.andExpect(jsonPath("$.items[0].title", is(movie3.getTitle())))
+					.andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+			// The stream holds one movie per line.
+			MvcResult streaming = mockMvc.perform(get("/movies/stream"))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			String body = mockMvc.perform(asyncDispatch(streaming))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			assertEquals(3, body.lines().count());
+			assertTrue(body.contains(movie3.getTitle()));
+		}
+
+		/**
+		 * Test that a streamed response keeps its in-flight permit until the async cycle completes.
+		 *
+		 * @throws Exception if the filter fails.
+		 */
+		@Test
+		public void testConcurrencyLimitHoldsPermitUntilAsyncCompletes() throws Exception {
+			ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ZERO, new SimpleMeterRegistry());
+			MockHttpServletRequest streaming = new MockHttpServletRequest("GET", "/movies/stream");
+			streaming.setAsyncSupported(true);
+			filter.doFilter(streaming, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+			// The only permit is still held by the stream, so the next request is rejected.
+			MockHttpServletResponse rejected = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("GET", "/movies"), rejected, (req, res) -> { });
+			assertEquals(503, rejected.getStatus());
+
+			((MockAsyncContext) streaming.getAsyncContext()).complete();
+			MockHttpServletResponse admitted = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("GET", "/movies"), admitted, (req, res) -> { });
+			assertEquals(200, admitted.getStatus());
+		}
+
+		/**
+		 * Test that a renamed movie is no longer found under its old title and is found under its new one.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testUpdateMovieInvalidatesCachedTitle() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			String oldTitle = movie.getTitle();
+			String newTitle = oldTitle + "_renamed";
+			movie.setTitle(newTitle);
+
+			mockMvc.perform(post("/movies/update/" + oldTitle)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(movie)))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.title", is(newTitle)));
+
+			// The old title is gone, so deleting by it fails while deleting by the new title succeeds.
+			mockMvc.perform(delete("/movies/" + oldTitle))
+					.andExpect(status().isNotFound());
+			mockMvc.perform(delete("/movies/" + newTitle))
+					.andExpect(status().isOk());
+			assertEquals(0, movieRepository.count());
+		}
+
+		/**
+		 * Test that the movie cache hands out copies, and that an older version of a movie never replaces a newer
+		 * one in the cache.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testMovieCacheHandsOutCopies() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			Movie stale = movieCache.findById(movie.getId()).orElseThrow();
+			stale.setGenre("Drama");
+			assertEquals("Sci-Fi", movieCache.findByTitle(movie.getTitle()).orElseThrow().getGenre());
+
+			movie.setGenre("Thriller");
+			mockMvc.perform(post("/movies/update/" + movie.getTitle())
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(movie)))
+					.andExpect(status().isOk());
+			// A reader that loaded the movie before the update puts it back late.
+			movieCache.put(stale);
+			assertEquals("Thriller", movieCache.findById(movie.getId()).orElseThrow().getGenre());
+
+			// The next update is not turned into a 409 by a stale cached version.
+			movie.setGenre("Action");
+			mockMvc.perform(post("/movies/update/" + movie.getTitle())
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(movie)))
+					.andExpect(status().isOk());
+		}
+
+		/**
+		 * Test that deleting a movie through a stale cached copy is answered with 409, and that a retry succeeds.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testDeleteMovieWithStaleCachedCopy() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			movieCache.findByTitle(movie.getTitle()).orElseThrow();
+			// Another instance updates the movie without this instance hearing about it.
+			jdbcTemplate.update("UPDATE movies SET genre = 'Drama', version = version + 1 WHERE id = ?", movie.getId());
+
+			mockMvc.perform(delete("/movies/" + movie.getTitle()))
+					.andExpect(status().isConflict());
+			mockMvc.perform(delete("/movies/" + movie.getTitle()))
+					.andExpect(status().isOk());
+			assertEquals(0, movieRepository.count());
+		}
+
 		/**
 		 * Test updating a movie that does not exist.
 		 *
@@ -208,6 +608,61 @@ public class PopcornPalaceApplicationTests {
 			mockMvc.perform(delete("/movies/UnknownMovie"))
 					.andExpect(status().isNotFound());
 		}
+
+		/**
+		 * Test that the movie listing is revalidated with its ETag until the catalog changes.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testGetAllMoviesConditionalGet() throws Exception {
+			addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			String etag = mockMvc.perform(get("/movies/all"))
+					.andExpect(status().isOk())
+					.andExpect(header().exists(HttpHeaders.ETAG))
+					.andExpect(jsonPath("$[0].version").doesNotExist())
+					.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+			mockMvc.perform(get("/movies/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+					.andExpect(status().isNotModified())
+					.andExpect(header().string(HttpHeaders.ETAG, etag))
+					.andExpect(content().string(""));
+
+			// Adding a movie changes the ETag, so the old copy is no longer current.
+			addTestMovie("Memento", "Thriller", 113, 8.4, 2000);
+			mockMvc.perform(get("/movies/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+					.andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+					.andExpect(jsonPath("$", hasSize(2)));
+		}
+
+		/**
+		 * Test that the catalog ETag never repeats, even when a movie is deleted and added again, which leaves the
+		 * catalog with the same size, and that another instance's writes are seen once it has announced them.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testCatalogETagNeverRepeats() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			Set<String> etags = new HashSet<>();
+			etags.add(catalogETag());
+
+			mockMvc.perform(delete("/movies/" + movie.getTitle()))
+					.andExpect(status().isOk());
+			assertTrue(etags.add(catalogETag()));
+			movie.setId(null);
+			mockMvc.perform(post("/movies")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(movie)))
+					.andExpect(status().isOk());
+			assertTrue(etags.add(catalogETag()));
+
+			// Another instance raises the version in the database and announces it on the bus.
+			catalogVersionRepository.increment("movies");
+			invalidationBus.apply(new CacheInvalidation("other-instance", CacheInvalidation.Kind.MOVIE, null, null, null));
+			assertTrue(etags.add(catalogETag()));
+		}
 	}
 
 	// --------------------------
@@ -236,7 +691,9 @@ public class PopcornPalaceApplicationTests {
 			// Get the showtime by ID.
 			mockMvc.perform(get("/showtimes/" + showtimeId))
 					.andExpect(status().isOk())
-					.andExpect(jsonPath("$.theater", is("Theater 1")));
+					.andExpect(jsonPath("$.theater", is("Theater 1")))
+					.andExpect(jsonPath("$.movieId", is(movieId.intValue())))
+					.andExpect(jsonPath("$.movie").doesNotExist());
 
 			// Update the showtime: change theater, price, and times.
 			Map<String, Object> updatePayload = new HashMap<>();
@@ -295,6 +752,128 @@ public class PopcornPalaceApplicationTests {
 					.andExpect(content().string("Showtime overlaps with an existing showtime in the same theater."));
 		}
 
+		/**
+		 * Test that the overlap index stays coherent when showtimes are updated and deleted:
+		 * <ul>
+		 *     <li>A showtime may be updated in place without overlapping itself</li>
+		 *     <li>A moved showtime frees its old slot and occupies the new one</li>
+		 *     <li>A deleted showtime frees its slot</li>
+		 * </ul>
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testOverlapIndexFollowsUpdatesAndDeletes() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			Long movieId = movie.getId();
+			LocalDateTime startTime = LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2);
+			Integer showtimeId = (Integer) addTestShowtime(movieId, "Theater 1", startTime, endTime, 20.0).get("id");
+
+			// Shift the showtime by 30 minutes; it must not collide with its own old slot.
+			Map<String, Object> updatePayload = new HashMap<>();
+			updatePayload.put("movieId", movieId);
+			updatePayload.put("theater", "Theater 1");
+			updatePayload.put("price", 20.0);
+			updatePayload.put("startTime", startTime.plusMinutes(30));
+			updatePayload.put("endTime", endTime.plusMinutes(30));
+			mockMvc.perform(post("/showtimes/update/" + showtimeId)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(updatePayload)))
+					.andExpect(status().isOk());
+
+			// The old start is still covered by the shifted showtime.
+			Map<String, Object> overlappingPayload = new HashMap<>(updatePayload);
+			overlappingPayload.put("startTime", startTime);
+			overlappingPayload.put("endTime", startTime.plusMinutes(45));
+			mockMvc.perform(post("/showtimes")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(overlappingPayload)))
+					.andExpect(status().isBadRequest());
+
+			// Once deleted, the slot is free again.
+			mockMvc.perform(delete("/showtimes/" + showtimeId))
+					.andExpect(status().isOk());
+			addTestShowtime(movieId, "Theater 1", startTime, endTime, 20.0);
+		}
+
+		/**
+		 * Test that a showtime batch is rejected as a whole when it overlaps itself or an existing showtime,
+		 * and is saved as a whole otherwise.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testAddShowtimeBatch() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime day = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.DAYS);
+			Integer existingId = (Integer) addTestShowtime(movie.getId(), "Theater 1", day.plusHours(10), day.plusHours(12), 20.0).get("id");
+
+			// The second showtime overlaps the first one in the batch, the third overlaps the existing showtime.
+			List<Map<String, Object>> overlapping = List.of(
+					buildShowtimePayload(movie.getId(), "Theater 2", day.plusHours(18), day.plusHours(20)),
+					buildShowtimePayload(movie.getId(), "Theater 2", day.plusHours(19), day.plusHours(21)),
+					buildShowtimePayload(movie.getId(), "Theater 1", day.plusHours(11), day.plusHours(13)),
+					buildShowtimePayload(movie.getId(), "Theater 1", day.plusHours(14), day.plusHours(16)));
+			mockMvc.perform(post("/showtimes/batch")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(Map.of("showtimes", overlapping))))
+					.andExpect(status().isBadRequest())
+					.andExpect(jsonPath("$", containsInAnyOrder(
+							"showtimes[1] overlaps with showtimes[0] in Theater 2",
+							"showtimes[2] overlaps with existing showtime " + existingId + " in Theater 1")));
+			assertEquals(1, showtimeRepository.count());
+
+			// A batch without overlaps is saved in request order.
+			List<Map<String, Object>> valid = List.of(
+					buildShowtimePayload(movie.getId(), "Theater 2", day.plusHours(18), day.plusHours(20)),
+					buildShowtimePayload(movie.getId(), "Theater 1", day.plusHours(12), day.plusHours(14)),
+					buildShowtimePayload(movie.getId(), "Theater 2", day.plusHours(20), day.plusHours(22)));
+			mockMvc.perform(post("/showtimes/batch")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(Map.of("showtimes", valid))))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$", hasSize(3)))
+					.andExpect(jsonPath("$[*].theater", contains("Theater 2", "Theater 1", "Theater 2")));
+			assertEquals(4, showtimeRepository.count());
+
+			// The saved batch is visible to later overlap checks.
+			mockMvc.perform(post("/showtimes")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(
+									buildShowtimePayload(movie.getId(), "Theater 2", day.plusHours(21), day.plusHours(23)))))
+					.andExpect(status().isBadRequest());
+		}
+
+		/**
+		 * Test the SQL overlap query used when the in-memory schedule index is disabled.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testExistsOverlappingQuery() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2);
+			Long showtimeId = ((Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0)
+					.get("id")).longValue();
+
+			Duration maxDuration = Duration.ofHours(24);
+			assertTrue(showtimeRepository.existsOverlapping("Theater 1", startTime.plusHours(1), endTime.plusHours(1), null, maxDuration));
+			assertFalse(showtimeRepository.existsOverlapping("Theater 1", startTime.plusHours(1), endTime.plusHours(1), showtimeId, maxDuration));
+			assertFalse(showtimeRepository.existsOverlapping("Theater 1", endTime, endTime.plusHours(2), null, maxDuration));
+			assertFalse(showtimeRepository.existsOverlapping("Theater 2", startTime, endTime, null, maxDuration));
+			// A showtime that ends exactly the maximum duration after it starts is still found.
+			assertTrue(showtimeRepository.existsOverlapping("Theater 1", endTime.minusMinutes(1), endTime, null, Duration.ofHours(2)));
+
+			// Showtimes longer than the maximum duration are rejected, since the bound would miss them.
+			mockMvc.perform(post("/showtimes")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(
+									buildShowtimePayload(movie.getId(), "Theater 3", startTime, startTime.plusHours(25)))))
+					.andExpect(status().isBadRequest());
+		}
+
 		/**
 		 * Test deletion of a showtime by details using edge cases:
 		 * <ul>
@@ -337,6 +916,227 @@ public class PopcornPalaceApplicationTests {
 							.param("startTime", startTime.toString()))
 					.andExpect(status().isOk());
 		}
+
+		/**
+		 * Test conditional GETs of a showtime: an unchanged showtime is answered with 304 Not Modified, and an
+		 * update makes the old ETag stale.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testGetShowtimeConditionalGet() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2);
+			Integer showtimeId = (Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0).get("id");
+
+			String etag = mockMvc.perform(get("/showtimes/" + showtimeId))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.version").doesNotExist())
+					.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+			mockMvc.perform(get("/showtimes/" + showtimeId).header(HttpHeaders.IF_NONE_MATCH, etag))
+					.andExpect(status().isNotModified())
+					.andExpect(header().string(HttpHeaders.ETAG, etag));
+
+			// The same holds when the version is not cached and the showtime is read from the database.
+			versionCache.invalidateAll();
+			mockMvc.perform(get("/showtimes/" + showtimeId).header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+					.andExpect(status().isNotModified());
+
+			String newEtag = mockMvc.perform(post("/showtimes/update/" + showtimeId)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(
+									buildShowtimePayload(movie.getId(), "Theater 1", startTime, endTime.plusHours(1)))))
+					.andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+					.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+			mockMvc.perform(get("/showtimes/" + showtimeId).header(HttpHeaders.IF_NONE_MATCH, etag))
+					.andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.ETAG, newEtag));
+		}
+
+		/**
+		 * Test the showtime search: filtering by movie, theater and start time window, and keyset pagination
+		 * across showtimes that start at the same time.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testSearchShowtimes() throws Exception {
+			Long inception = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010).getId();
+			Long memento = addTestMovie("Memento", "Thriller", 113, 8.4, 2000).getId();
+			LocalDateTime day = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.DAYS);
+			addTestShowtime(inception, "Theater 1", day.plusHours(10), day.plusHours(13), 20.0);
+			addTestShowtime(memento, "Theater 2", day.plusHours(10), day.plusHours(12), 20.0);
+			addTestShowtime(inception, "Theater 3", day.plusHours(10), day.plusHours(13), 20.0);
+			addTestShowtime(memento, "Theater 1", day.plusHours(14), day.plusHours(16), 20.0);
+			addTestShowtime(inception, "Theater 1", day.plusDays(1).plusHours(10), day.plusDays(1).plusHours(13), 20.0);
+
+			mockMvc.perform(get("/showtimes").param("movieId", inception.toString()))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.items", hasSize(3)))
+					.andExpect(jsonPath("$.items[*].movieId", everyItem(is(inception.intValue()))));
+			mockMvc.perform(get("/showtimes").param("theater", "Theater 1")
+							.param("from", day.toString()).param("to", day.plusDays(1).toString()))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.items[*].startTime",
+							contains(day.plusHours(10).toString() + ":00", day.plusHours(14).toString() + ":00")))
+					.andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+			// Page through the day's schedule two showtimes at a time; three showtimes share a start time.
+			List<Integer> ids = new ArrayList<>();
+			String cursor = null;
+			do {
+				MockHttpServletRequestBuilder request = get("/showtimes").param("from", day.toString())
+						.param("to", day.plusDays(1).toString()).param("limit", "2");
+				if (cursor != null) {
+					request.param("cursor", cursor);
+				}
+				JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+						.andExpect(status().isOk())
+						.andReturn().getResponse().getContentAsString());
+				page.get("items").forEach(item -> ids.add(item.get("id").asInt()));
+				cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+			} while (cursor != null);
+			assertEquals(4, ids.size());
+			assertEquals(4, ids.stream().distinct().count());
+
+			mockMvc.perform(get("/showtimes").param("cursor", "not-a-cursor"))
+					.andExpect(status().isBadRequest());
+			mockMvc.perform(get("/showtimes").param("limit", "0"))
+					.andExpect(status().isBadRequest());
+		}
+
+		/**
+		 * Test that invalidations from another instance evict stale movies and theater schedules, which this
+		 * instance would otherwise keep using for validation.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testCacheInvalidationFromAnotherInstance() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2);
+			Integer showtimeId = (Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0).get("id");
+
+			// Another instance renames the movie and deletes the showtime.
+			Movie renamed = movieRepository.findById(movie.getId()).orElseThrow();
+			renamed.setTitle(movie.getTitle() + " (Director's Cut)");
+			movieRepository.save(renamed);
+			showtimeRepository.deleteById(showtimeId.longValue());
+
+			Movie sameTitle = new Movie();
+			sameTitle.setTitle(movie.getTitle());
+			sameTitle.setGenre("Sci-Fi");
+			sameTitle.setDuration(148);
+			sameTitle.setRating(8.8);
+			sameTitle.setReleaseYear(2010);
+			String sameTitleJson = objectMapper.writeValueAsString(sameTitle);
+			String showtimeJson = objectMapper.writeValueAsString(
+					buildShowtimePayload(movie.getId(), "Theater 1", startTime, endTime));
+
+			// Without invalidations, the cached movie and schedule are stale.
+			mockMvc.perform(post("/movies").contentType(MediaType.APPLICATION_JSON).content(sameTitleJson))
+					.andExpect(status().isBadRequest());
+			mockMvc.perform(post("/showtimes").contentType(MediaType.APPLICATION_JSON).content(showtimeJson))
+					.andExpect(status().isBadRequest());
+
+			invalidationBus.apply(new CacheInvalidation("other-instance", CacheInvalidation.Kind.MOVIE, movie.getId(), null,
+					null));
+			invalidationBus.apply(new CacheInvalidation("other-instance", CacheInvalidation.Kind.SHOWTIME_DELETED,
+					showtimeId.longValue(), null, null));
+
+			mockMvc.perform(post("/movies").contentType(MediaType.APPLICATION_JSON).content(sameTitleJson))
+					.andExpect(status().isOk());
+			mockMvc.perform(post("/showtimes").contentType(MediaType.APPLICATION_JSON).content(showtimeJson))
+					.andExpect(status().isOk());
+		}
+
+		/**
+		 * Test that seat events from another instance mark booked seats taken in a loaded seat map without loading
+		 * others, and that reloading the seat maps, as after a reconnect, keeps this instance's holds.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testSeatEventsFromAnotherInstance() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			Long loaded = ((Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, startTime.plusHours(2), 20.0)
+					.get("id")).longValue();
+			Long unloaded = ((Integer) addTestShowtime(movie.getId(), "Theater 2", startTime, startTime.plusHours(2), 20.0)
+					.get("id")).longValue();
+			seatMapRegistry.forShowtime(loaded);
+
+			// Another instance books seat 5; this instance rejects it without a database round trip.
+			double databaseConflictsBefore = meterRegistry.counter("popcorn.bookings.seat.conflicts", "detectedBy", "database").count();
+			bookingRepository.insertIfSeatFree(UUID.randomUUID(), loaded, 5, "user-999");
+			invalidationBus.apply(new CacheInvalidation("other-instance", CacheInvalidation.Kind.SEATS_TAKEN, loaded,
+					null, List.of(5)));
+			invalidationBus.apply(new CacheInvalidation("other-instance", CacheInvalidation.Kind.SEATS_TAKEN, unloaded,
+					null, List.of(5)));
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(loaded.intValue(), 5, "user-123"))))
+					.andExpect(status().isBadRequest());
+			assertEquals(databaseConflictsBefore,
+					meterRegistry.counter("popcorn.bookings.seat.conflicts", "detectedBy", "database").count());
+			assertTrue(seatMapRegistry.findLoaded(unloaded).isEmpty());
+
+			// After the seat maps are dropped, the reloaded map has the booked seat and the seat held here.
+			String holdId = holdSeat(loaded.intValue(), 6, "user-123");
+			seatMapRegistry.invalidateAll();
+			assertTrue(seatMapRegistry.forShowtime(loaded).isTaken(5));
+			assertTrue(seatMapRegistry.forShowtime(loaded).isTaken(6));
+
+			// Releasing the hold frees the seat in the reloaded map.
+			mockMvc.perform(delete("/bookings/holds/" + holdId))
+					.andExpect(status().isOk());
+			assertFalse(seatMapRegistry.forShowtime(loaded).isTaken(6));
+		}
+
+		/**
+		 * Test that a seat event published by one instance reaches another through PostgreSQL LISTEN/NOTIFY.
+		 * Runs only when POPCORN_PALACE_TEST_POSTGRES_URL (with _USER and _PASSWORD) points at a reachable
+		 * PostgreSQL database, and is skipped otherwise.
+		 *
+		 * @throws Exception if an API call or the database fails.
+		 */
+		@Test
+		public void testCacheInvalidationOverPostgres() throws Exception {
+			String url = System.getenv("POPCORN_PALACE_TEST_POSTGRES_URL");
+			assumeTrue(url != null, "POPCORN_PALACE_TEST_POSTGRES_URL is not set");
+			String user = Objects.requireNonNullElse(System.getenv("POPCORN_PALACE_TEST_POSTGRES_USER"), "postgres");
+			String password = Objects.requireNonNullElse(System.getenv("POPCORN_PALACE_TEST_POSTGRES_PASSWORD"), "");
+			try (Connection ignored = DriverManager.getConnection(url, user, password)) {
+				// Reachable.
+			} catch (SQLException e) {
+				assumeTrue(false, "PostgreSQL is not reachable: " + e.getMessage());
+			}
+
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			Long showtimeId = ((Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, startTime.plusHours(2), 20.0)
+					.get("id")).longValue();
+			SeatBitmap seats = seatMapRegistry.forShowtime(showtimeId);
+
+			// Two buses stand in for two instances; the receiving one updates this context's seat map.
+			CacheInvalidationBus publisher = postgresBus(url, user, password);
+			CacheInvalidationBus receiver = postgresBus(url, user, password);
+			try {
+				long deadline = System.currentTimeMillis() + 10_000;
+				// Publish until the receiver is listening; claims are idempotent.
+				while (!seats.isTaken(7) && System.currentTimeMillis() < deadline) {
+					publisher.seatsTaken(showtimeId, List.of(7));
+					Thread.sleep(200);
+				}
+				assertTrue(seats.isTaken(7));
+			} finally {
+				ReflectionTestUtils.invokeMethod(publisher, "stop");
+				ReflectionTestUtils.invokeMethod(receiver, "stop");
+			}
+		}
 	}
 
 	// --------------------------
@@ -371,7 +1171,9 @@ public class PopcornPalaceApplicationTests {
 							.contentType(MediaType.APPLICATION_JSON)
 							.content(objectMapper.writeValueAsString(bookingRequest)))
 					.andExpect(status().isOk())
-					.andExpect(jsonPath("$.bookingId", notNullValue()));
+					.andExpect(jsonPath("$.bookingId", notNullValue()))
+					.andExpect(jsonPath("$.showtimeId", is(showtimeId)))
+					.andExpect(jsonPath("$.showtime").doesNotExist());
 
 			// Duplicate booking (same seat) should fail.
 			mockMvc.perform(post("/bookings")
@@ -381,6 +1183,263 @@ public class PopcornPalaceApplicationTests {
 					.andExpect(content().string(containsString("Seat already booked for this showtime")));
 		}
 
+		/**
+		 * Test that a user booking faster than their rate is shed with 429 and Retry-After before any
+		 * repository call, while other users can still book the same showtime.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testBookingAdmissionControlPerUser() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			Integer showtimeId = (Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, startTime.plusHours(2), 20.0).get("id");
+			double rejectedBefore = meterRegistry.counter("popcorn.admission.rejections", "limiter", "user").count();
+
+			// The user's bucket holds 10 seats; a bot booking sequential seats drains it.
+			for (int seat = 1; seat <= 10; seat++) {
+				mockMvc.perform(post("/bookings")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, seat, "bot"))))
+						.andExpect(status().isOk());
+			}
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 11, "bot"))))
+					.andExpect(status().isTooManyRequests())
+					.andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+			// Even a request for a showtime that does not exist is shed before it is looked up.
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(-1, 1, "bot"))))
+					.andExpect(status().isTooManyRequests());
+
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 11, "user-123"))))
+					.andExpect(status().isOk());
+			assertEquals(11, bookingRepository.count());
+			assertEquals(2, meterRegistry.counter("popcorn.admission.rejections", "limiter", "user").count() - rejectedBefore);
+		}
+
+		/**
+		 * Test that a request rejected by its showtime's bucket gives its tokens back to the user's bucket.
+		 */
+		@Test
+		public void testAdmissionControlRefundsUserOnShowtimeRejection() {
+			// Users may take 2 seats, showtimes 1, and neither refills during the test.
+			AdmissionControl admission = new AdmissionControl(palaceMetrics, true, 100, 0.01, 2, 0.01, 1, 1, 1, 1, 1);
+
+			assertTrue(admission.admitBooking("user-1", 1L, 1).admitted());
+			// A retry against the saturated showtime is rejected by the showtime, not charged to the user.
+			assertEquals("showtime", admission.admitBooking("user-1", 1L, 1).limiter());
+			assertEquals("showtime", admission.admitBooking("user-1", 1L, 1).limiter());
+			assertTrue(admission.admitBooking("user-1", 2L, 1).admitted());
+			assertEquals("user", admission.admitBooking("user-1", 3L, 1).limiter());
+		}
+
+		/**
+		 * Test that showtime writes share one bucket, charged per showtime, and that showtime reads are limited
+		 * per showtime.
+		 */
+		@Test
+		public void testAdmissionControlLimitsShowtimeReadsAndWrites() {
+			// The schedule takes 3 showtimes, each showtime 1 read, and neither refills during the test.
+			AdmissionControl admission = new AdmissionControl(palaceMetrics, true, 100, 1, 1, 1, 1, 0.01, 1, 0.01, 3);
+
+			assertTrue(admission.admitScheduleWrite(2).admitted());
+			assertEquals("schedule", admission.admitScheduleWrite(2).limiter());
+			assertTrue(admission.admitScheduleWrite(1).admitted());
+			assertEquals("schedule", admission.admitScheduleWrite(1).limiter());
+
+			assertTrue(admission.admitShowtimeRead(1L).admitted());
+			assertEquals("showtime-read", admission.admitShowtimeRead(1L).limiter());
+			assertTrue(admission.admitShowtimeRead(2L).admitted());
+		}
+
+		/**
+		 * Test that bookings for a showtime with an open waiting room are queued, answered with a ticket, and
+		 * booked in order by the room's consumer, so that a later request for the same seat is rejected.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testWaitingRoomQueuesAndBooksInOrder() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			Integer showtimeId = (Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, startTime.plusHours(2), 20.0).get("id");
+
+			mockMvc.perform(put("/bookings/waiting-room/9999"))
+					.andExpect(status().isBadRequest());
+			mockMvc.perform(put("/bookings/waiting-room/" + showtimeId))
+					.andExpect(status().isOk());
+			// Holds would skip the queue, so they are refused while the room is open.
+			mockMvc.perform(post("/bookings/holds")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 9, "user-9"))))
+					.andExpect(status().isConflict());
+
+			List<String> ticketIds = new ArrayList<>();
+			int[] seats = {1, 2, 3, 1};
+			for (int i = 0; i < seats.length; i++) {
+				String response = mockMvc.perform(post("/bookings")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, seats[i], "user-" + i))))
+						.andExpect(status().isAccepted())
+						.andExpect(header().exists(HttpHeaders.LOCATION))
+						.andExpect(jsonPath("$.ticketId", notNullValue()))
+						.andReturn().getResponse().getContentAsString();
+				ticketIds.add(objectMapper.readTree(response).get("ticketId").asText());
+			}
+
+			List<String> states = new ArrayList<>();
+			for (String ticketId : ticketIds) {
+				long deadline = System.currentTimeMillis() + 5_000;
+				String state;
+				do {
+					String response = mockMvc.perform(get("/bookings/waiting-room/tickets/" + ticketId))
+							.andExpect(status().isOk())
+							.andReturn().getResponse().getContentAsString();
+					state = objectMapper.readTree(response).get("state").asText();
+					if ("QUEUED".equals(state)) {
+						Thread.sleep(50);
+					}
+				} while ("QUEUED".equals(state) && System.currentTimeMillis() < deadline);
+				states.add(state);
+			}
+			assertEquals(List.of("BOOKED", "BOOKED", "BOOKED", "REJECTED"), states);
+			assertEquals(3, bookingRepository.count());
+
+			mockMvc.perform(get("/bookings/waiting-room/tickets/" + UUID.randomUUID()))
+					.andExpect(status().isNotFound());
+
+			// The flag is stored with the showtime. Another instance closing the room stops queueing here, and an
+			// instance (re)loading the flags queues again.
+			assertEquals(List.of(showtimeId.longValue()), showtimeRepository.findIdsWithOpenWaitingRoom());
+			invalidationBus.apply(new CacheInvalidation("other-instance", CacheInvalidation.Kind.WAITING_ROOM_CLOSED,
+					showtimeId.longValue(), null, null));
+			// A request that finds the room closed is told to book inline rather than that the room is full.
+			WaitingRoom.Enqueued enqueued = waitingRoom.enqueue(showtimeId.longValue(), 4, "user-4");
+			assertTrue(enqueued.closed());
+			assertNull(enqueued.ticket());
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 4, "user-4"))))
+					.andExpect(status().isOk());
+			waitingRoom.reload();
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 5, "user-5"))))
+					.andExpect(status().isAccepted());
+			long deadline = System.currentTimeMillis() + 5_000;
+			while (bookingRepository.count() < 5 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertEquals(5, bookingRepository.count());
+
+			mockMvc.perform(delete("/bookings/waiting-room/" + showtimeId))
+					.andExpect(status().isOk());
+			mockMvc.perform(delete("/bookings/waiting-room/" + showtimeId))
+					.andExpect(status().isNotFound());
+			assertTrue(showtimeRepository.findIdsWithOpenWaitingRoom().isEmpty());
+		}
+
+		/**
+		 * Test that deleting a showtime drops its waiting room without leaving a seat map behind.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testDeleteShowtimeDiscardsWaitingRoom() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			Integer showtimeId = (Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, startTime.plusHours(2), 20.0).get("id");
+			mockMvc.perform(put("/bookings/waiting-room/" + showtimeId))
+					.andExpect(status().isOk());
+
+			mockMvc.perform(delete("/showtimes/" + showtimeId))
+					.andExpect(status().isOk());
+			assertFalse(waitingRoom.isOpen(showtimeId.longValue()));
+			assertTrue(seatMapRegistry.findLoaded(showtimeId.longValue()).isEmpty());
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 1, "user-1"))))
+					.andExpect(status().isBadRequest());
+		}
+
+		/**
+		 * Test that a retried booking with the same Idempotency-Key gets the original response back instead of
+		 * "Seat already booked", both from memory and from the database, and that a key cannot be reused for a
+		 * different request.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testBookTicketIdempotencyKey() throws Exception {
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			Integer showtimeId = (Integer) addTestShowtime(movie.getId(), "Theater 1", startTime, startTime.plusHours(2), 20.0).get("id");
+			String booking = objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 10, "user-123"));
+
+			String first = mockMvc.perform(post("/bookings")
+							.header("Idempotency-Key", "retry-1")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(booking))
+					.andExpect(status().isOk())
+					.andExpect(header().doesNotExist("Idempotency-Replayed"))
+					.andReturn().getResponse().getContentAsString();
+
+			// The retry is answered from memory, then, after the memory is cleared, from the database.
+			for (int retry = 0; retry < 2; retry++) {
+				mockMvc.perform(post("/bookings")
+								.header("Idempotency-Key", "retry-1")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(booking))
+						.andExpect(status().isOk())
+						.andExpect(header().string("Idempotency-Replayed", "true"))
+						.andExpect(content().json(first, JsonCompareMode.STRICT));
+				idempotencyStore.invalidateAll();
+			}
+			assertEquals(1, bookingRepository.count());
+
+			mockMvc.perform(post("/bookings")
+							.header("Idempotency-Key", "retry-1")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 11, "user-123"))))
+					.andExpect(status().isUnprocessableEntity());
+
+			// A retry while the first request is still running is rejected rather than run twice.
+			IdempotencyStore.Claim running = idempotencyStore.claim("retry-2", "fingerprint");
+			assertEquals(IdempotencyStore.Decision.PROCEED, running.decision());
+			assertEquals(IdempotencyStore.Decision.IN_FLIGHT, idempotencyStore.claim("retry-2", "fingerprint").decision());
+			idempotencyStore.release(running);
+			assertEquals(IdempotencyStore.Decision.PROCEED, idempotencyStore.claim("retry-2", "fingerprint").decision());
+		}
+
+		/**
+		 * Test that a request failing with an Error releases its Idempotency-Key, so a retry is processed instead of
+		 * being rejected as still in flight.
+		 *
+		 * @throws Exception if the filter fails other than with the simulated error.
+		 */
+		@Test
+		public void testIdempotencyKeyReleasedOnError() throws Exception {
+			MockHttpServletRequest request = new MockHttpServletRequest("POST", "/bookings");
+			request.addHeader("Idempotency-Key", "error-1");
+			request.setContent("{}".getBytes());
+			assertThrows(StackOverflowError.class, () -> idempotencyFilter.doFilter(request, new MockHttpServletResponse(),
+					(req, res) -> {
+						throw new StackOverflowError();
+					}));
+
+			MockHttpServletRequest retry = new MockHttpServletRequest("POST", "/bookings");
+			retry.addHeader("Idempotency-Key", "error-1");
+			retry.setContent("{}".getBytes());
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			idempotencyFilter.doFilter(retry, response, (req, res) -> ((HttpServletResponse) res).setStatus(201));
+			assertEquals(201, response.getStatus());
+		}
+
 		/**
 		 * Test booking a ticket with an invalid (non-existent) showtime ID.
 		 *
@@ -433,5 +1492,332 @@ public class PopcornPalaceApplicationTests {
 					.andExpect(status().isOk())
 					.andExpect(jsonPath("$.bookingId", notNullValue()));
 		}
+
+		/**
+		 * Test that booking IDs are version 7 UUIDs that increase with every booking.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testBookingIdsAreTimeOrdered() throws Exception {
+			// Create a movie and a showtime.
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+			Map<String, Object> showtimeResponse = addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0);
+			Integer showtimeId = (Integer) showtimeResponse.get("id");
+
+			List<UUID> bookingIds = new ArrayList<>();
+			for (int seat = 1; seat <= 5; seat++) {
+				String response = mockMvc.perform(post("/bookings")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, seat, "user-123"))))
+						.andExpect(status().isOk())
+						.andReturn().getResponse().getContentAsString();
+				bookingIds.add(UUID.fromString(objectMapper.readTree(response).get("bookingId").asText()));
+			}
+
+			for (int i = 0; i < bookingIds.size(); i++) {
+				assertEquals(7, bookingIds.get(i).version());
+				assertEquals(2, bookingIds.get(i).variant());
+				if (i > 0) {
+					// UUID.compareTo compares signed longs, so compare the unsigned timestamp-first bits instead.
+					assertTrue(Long.compareUnsigned(bookingIds.get(i - 1).getMostSignificantBits(),
+							bookingIds.get(i).getMostSignificantBits()) < 0);
+				}
+			}
+		}
+
+		/**
+		 * Test that the write-behind writer replays its journal on startup and flushes new bookings in batches, that
+		 * a journaled booking of a deleted showtime is dropped instead of blocking the bookings after it, and that
+		 * bookings of a retired showtime are rejected instead of being acknowledged.
+		 *
+		 * @throws Exception if an API call or a journal operation fails.
+		 */
+		@Test
+		public void testWriteBehindReplaysJournalAndFlushes(@TempDir Path tempDir) throws Exception {
+			// Create a movie and a showtime.
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+			Map<String, Object> showtimeResponse = addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0);
+			Long showtimeId = ((Integer) showtimeResponse.get("id")).longValue();
+
+			// Leave bookings in the journal, as if the application had crashed before flushing them. The first one
+			// belongs to a showtime that has been deleted since.
+			Path journalPath = tempDir.resolve("bookings.journal");
+			try (BookingJournal journal = new BookingJournal(journalPath)) {
+				journal.append(List.of(
+						new JournaledBooking(UUID.randomUUID(), showtimeId + 1000, 1, "user-0"),
+						new JournaledBooking(UUID.randomUUID(), showtimeId, 1, "user-1")));
+			}
+			double droppedBefore = meterRegistry.counter("popcorn.bookings.write-behind.dropped").count();
+
+			WriteBehindBookingWriter writer = new WriteBehindBookingWriter();
+			ReflectionTestUtils.setField(writer, "bookingBatchRepository", bookingBatchRepository);
+			ReflectionTestUtils.setField(writer, "bookingRepository", bookingRepository);
+			ReflectionTestUtils.setField(writer, "seatMapRegistry", seatMapRegistry);
+			ReflectionTestUtils.setField(writer, "metrics", palaceMetrics);
+			ReflectionTestUtils.setField(writer, "enabled", true);
+			ReflectionTestUtils.setField(writer, "journalPath", journalPath);
+			ReflectionTestUtils.setField(writer, "maxBatchSize", 10);
+			ReflectionTestUtils.invokeMethod(writer, "start");
+			try {
+				// The journaled booking is replayed on startup and the orphaned one is dropped.
+				assertEquals(List.of(1), bookingRepository.findSeatNumbersByShowtimeId(showtimeId));
+				assertEquals(1, bookingRepository.count());
+				assertEquals(1, meterRegistry.counter("popcorn.bookings.write-behind.dropped").count() - droppedBefore);
+
+				// New bookings are acknowledged once journaled, and are in the database once the writer is drained.
+				writer.submit(List.of(new JournaledBooking(UUID.randomUUID(), showtimeId, 2, "user-2")))
+						.get(5, TimeUnit.SECONDS);
+				writer.drain().get(5, TimeUnit.SECONDS);
+				assertEquals(2, bookingRepository.count());
+
+				// Once the showtime is retired for deletion, its bookings are no longer acknowledged.
+				writer.retireShowtime(showtimeId).get(5, TimeUnit.SECONDS);
+				ExecutionException rejected = assertThrows(ExecutionException.class, () -> writer.submit(
+						List.of(new JournaledBooking(UUID.randomUUID(), showtimeId, 3, "user-3"))).get(5, TimeUnit.SECONDS));
+				assertInstanceOf(DataIntegrityViolationException.class, rejected.getCause());
+				writer.drain().get(5, TimeUnit.SECONDS);
+				assertEquals(2, bookingRepository.count());
+			} finally {
+				ReflectionTestUtils.invokeMethod(writer, "stop");
+			}
+			// Flushed bookings are no longer in the journal.
+			assertEquals(0, Files.size(journalPath));
+		}
+
+		/**
+		 * Test that replaying the journal skips a record torn by a crash and still recovers the records after it.
+		 *
+		 * @throws Exception if a journal operation fails.
+		 */
+		@Test
+		public void testJournalReplaySkipsTornRecord(@TempDir Path tempDir) throws Exception {
+			Path journalPath = tempDir.resolve("bookings.journal");
+			JournaledBooking first = new JournaledBooking(UUID.randomUUID(), 1L, 1, "user-1");
+			JournaledBooking second = new JournaledBooking(UUID.randomUUID(), 1L, 2, "user-2");
+			JournaledBooking third = new JournaledBooking(UUID.randomUUID(), 1L, 3, "user-3");
+			try (BookingJournal journal = new BookingJournal(journalPath)) {
+				journal.append(List.of(first));
+			}
+			// Cut a second copy of the first record short, as if the process had died in the middle of an append.
+			byte[] record = Files.readAllBytes(journalPath);
+			Files.write(journalPath, Arrays.copyOf(record, record.length - 7), StandardOpenOption.APPEND);
+			try (BookingJournal journal = new BookingJournal(journalPath)) {
+				journal.append(List.of(second, third));
+			}
+
+			try (BookingJournal journal = new BookingJournal(journalPath)) {
+				assertEquals(List.of(first, second, third), journal.readAll());
+			}
+		}
+
+		/**
+		 * Test that a held seat is taken until the hold is confirmed, released, or expires.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testSeatHoldLifecycle() throws Exception {
+			// Create a movie and a showtime.
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+			Map<String, Object> showtimeResponse = addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0);
+			Integer showtimeId = (Integer) showtimeResponse.get("id");
+
+			// A held seat cannot be booked or held by anyone else.
+			String holdId = holdSeat(showtimeId, 1, "user-1");
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 1, "user-2"))))
+					.andExpect(status().isBadRequest());
+			mockMvc.perform(post("/bookings/holds")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 1, "user-2"))))
+					.andExpect(status().isBadRequest());
+
+			// Confirming the hold books the seat for the holder, once.
+			mockMvc.perform(post("/bookings/holds/" + holdId + "/confirm"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.userId", is("user-1")));
+			mockMvc.perform(post("/bookings/holds/" + holdId + "/confirm"))
+					.andExpect(status().isBadRequest());
+			assertEquals(1, bookingRepository.count());
+
+			// A released hold frees the seat.
+			String releasedHoldId = holdSeat(showtimeId, 2, "user-1");
+			mockMvc.perform(delete("/bookings/holds/" + releasedHoldId))
+					.andExpect(status().isOk());
+			mockMvc.perform(post("/bookings/holds/" + releasedHoldId + "/confirm"))
+					.andExpect(status().isBadRequest());
+
+			// An expired hold frees the seat and can no longer be confirmed.
+			String expiredHoldId = holdSeat(showtimeId, 3, "user-1");
+			long deadline = System.currentTimeMillis() + 10_000;
+			int status;
+			do {
+				Thread.sleep(200);
+				status = mockMvc.perform(post("/bookings/holds")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 3, "user-2"))))
+						.andReturn().getResponse().getStatus();
+			} while (status != 200 && System.currentTimeMillis() < deadline);
+			assertEquals(200, status);
+			mockMvc.perform(post("/bookings/holds/" + expiredHoldId + "/confirm"))
+					.andExpect(status().isBadRequest());
+		}
+
+		/**
+		 * Test that the seat map reflects bookings inside and outside of the bitmap range.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testSeatMapShowsBookedSeats() throws Exception {
+			// Create a movie and a showtime.
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+			Map<String, Object> showtimeResponse = addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0);
+			Integer showtimeId = (Integer) showtimeResponse.get("id");
+
+			for (int seat : new int[]{0, 9, 5000}) {
+				mockMvc.perform(post("/bookings")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, seat, "user-123"))))
+						.andExpect(status().isOk());
+			}
+
+			String response = mockMvc.perform(get("/showtimes/" + showtimeId + "/seats"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.takenCount", is(3)))
+					.andExpect(jsonPath("$.otherTakenSeats", contains(5000)))
+					.andReturn().getResponse().getContentAsString();
+			byte[] bitmap = Base64.getDecoder().decode(objectMapper.readTree(response).get("bitmap").asText());
+			assertEquals(0b0000_0001, bitmap[0]);
+			assertEquals(0b0000_0010, bitmap[1]);
+
+			// Unknown showtimes have no seat map.
+			mockMvc.perform(get("/showtimes/9999/seats"))
+					.andExpect(status().isNotFound());
+		}
+
+		/**
+		 * Test that concurrent requests for the same seat result in exactly one booking.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testConcurrentBookingsSameSeat() throws Exception {
+			// Create a movie and a showtime.
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+			Map<String, Object> showtimeResponse = addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0);
+			Integer showtimeId = (Integer) showtimeResponse.get("id");
+
+			// Race several users for seat 7.
+			double conflictsBefore = meterRegistry.counter("popcorn.bookings.seat.conflicts", "detectedBy", "seat-map").count();
+			int attempts = 8;
+			ExecutorService executor = Executors.newFixedThreadPool(attempts);
+			List<Future<Integer>> statuses = new ArrayList<>();
+			for (int i = 0; i < attempts; i++) {
+				String content = objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 7, "user-" + i));
+				statuses.add(executor.submit(() -> mockMvc.perform(post("/bookings")
+								.contentType(MediaType.APPLICATION_JSON)
+								.content(content))
+						.andReturn().getResponse().getStatus()));
+			}
+			int successes = 0;
+			for (Future<Integer> status : statuses) {
+				if (status.get() == 200) {
+					successes++;
+				}
+			}
+			executor.shutdown();
+
+			assertEquals(1, successes);
+			assertEquals(1, bookingRepository.count());
+			// Every losing request is counted as a seat conflict caught by the seat map.
+			assertEquals(attempts - 1, meterRegistry.counter("popcorn.bookings.seat.conflicts", "detectedBy", "seat-map").count()
+					- conflictsBefore);
+		}
+
+		/**
+		 * Test that the database rejects a second booking of the same seat, as happens when another
+		 * instance has already booked it.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testInsertIfSeatFreeRejectsDuplicateSeat() throws Exception {
+			// Create a movie and a showtime.
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+			Map<String, Object> showtimeResponse = addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0);
+			Long showtimeId = ((Integer) showtimeResponse.get("id")).longValue();
+
+			assertEquals(1, bookingRepository.insertIfSeatFree(UUID.randomUUID(), showtimeId, 3, "user-123"));
+			assertEquals(0, bookingRepository.insertIfSeatFree(UUID.randomUUID(), showtimeId, 3, "user-456"));
+			assertEquals(1, bookingRepository.count());
+		}
+
+		/**
+		 * Test that a group booking reserves all requested seats or none of them.
+		 *
+		 * @throws Exception if an API call fails.
+		 */
+		@Test
+		public void testGroupBookingAllOrNothing() throws Exception {
+			// Create a movie and a showtime.
+			Movie movie = addTestMovie("Inception", "Sci-Fi", 148, 8.8, 2010);
+			LocalDateTime startTime = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+			LocalDateTime endTime = startTime.plusHours(2).truncatedTo(ChronoUnit.SECONDS);
+			Map<String, Object> showtimeResponse = addTestShowtime(movie.getId(), "Theater 1", startTime, endTime, 20.0);
+			Integer showtimeId = (Integer) showtimeResponse.get("id");
+
+			Map<String, Object> groupRequest = new HashMap<>();
+			groupRequest.put("showtimeId", showtimeId);
+			groupRequest.put("userId", "user-123");
+			groupRequest.put("seatNumbers", List.of(1, 2, 3));
+
+			// The first group booking succeeds for all seats.
+			mockMvc.perform(post("/bookings/batch")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(groupRequest)))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$", hasSize(3)))
+					.andExpect(jsonPath("$[0].bookingId", notNullValue()));
+
+			// A group that includes a booked seat fails as a whole.
+			groupRequest.put("seatNumbers", List.of(3, 4));
+			mockMvc.perform(post("/bookings/batch")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(groupRequest)))
+					.andExpect(status().isBadRequest())
+					.andExpect(content().string(containsString("[3]")));
+			assertEquals(3, bookingRepository.count());
+
+			// Seat 4 was released and can still be booked on its own.
+			mockMvc.perform(post("/bookings")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(buildBookingPayload(showtimeId, 4, "user-456"))))
+					.andExpect(status().isOk());
+
+			// A seat booked by another instance is caught by the database and the whole group is rolled back.
+			bookingRepository.insertIfSeatFree(UUID.randomUUID(), showtimeId.longValue(), 9, "user-789");
+			groupRequest.put("seatNumbers", List.of(8, 9));
+			mockMvc.perform(post("/bookings/batch")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(objectMapper.writeValueAsString(groupRequest)))
+					.andExpect(status().isBadRequest())
+					.andExpect(content().string(containsString("[9]")));
+			assertEquals(5, bookingRepository.count());
+		}
 	}
 }
@@ -0,0 +1,229 @@
+package com.att.tdp.popcorn_palace.loadtest;
+
+import com.att.tdp.popcorn_palace.PopcornPalaceApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Self-contained load generator that simulates an on-sale rush.
+ * <p>
+ * It starts the application in-process on a random port against the in-memory H2 stand-in database from the
+ * test configuration, creates a movie and a set of showtimes, and then drives a mix of {@code POST /bookings},
+ * {@code GET /showtimes/{id}} and {@code POST /showtimes} requests from many concurrent clients. At the end it
+ * prints p50/p99 latency, throughput and status counts per endpoint, as well as the seat conflict rate.
+ * </p>
+ * <p>
+ * Run with {@code ./mvnw -Ploadtest test-compile exec:java}. All settings are system properties:
+ * <ul>
+ *   <li>{@code loadtest.profile}: {@code rush} (one sold-out showtime, default) or {@code steady}
+ *       (bookings spread over many showtimes); presets for the settings below</li>
+ *   <li>{@code loadtest.requests}: total number of requests</li>
+ *   <li>{@code loadtest.concurrency}: number of requests in flight at once</li>
+ *   <li>{@code loadtest.showtimes}: number of showtimes created up front</li>
+ *   <li>{@code loadtest.seats}: seats per showtime that clients pick from</li>
+ *   <li>{@code loadtest.hotShare}: share of bookings that target the first ("hot") showtime</li>
+ *   <li>{@code loadtest.readShare} / {@code loadtest.scheduleShare}: share of showtime reads and writes</li>
+ * </ul>
+ * Any other system property, e.g. {@code spring.threads.virtual.enabled=true}, configures the application.
+ * </p>
+ */
+public class OnSaleLoadGenerator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<String, EndpointStats> stats = new TreeMap<>();
+
+    private OnSaleLoadGenerator(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean rush = !"steady".equals(System.getProperty("loadtest.profile", "rush"));
+        int requests = Integer.getInteger("loadtest.requests", 20_000);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 200);
+        int showtimes = Integer.getInteger("loadtest.showtimes", rush ? 5 : 50);
+        int seats = Integer.getInteger("loadtest.seats", rush ? 200 : 500);
+        double hotShare = Double.parseDouble(System.getProperty("loadtest.hotShare", rush ? "0.9" : "0.02"));
+        double readShare = Double.parseDouble(System.getProperty("loadtest.readShare", "0.15"));
+        double scheduleShare = Double.parseDouble(System.getProperty("loadtest.scheduleShare", "0.02"));
+
+        // System properties take precedence over application.yaml, but explicit -D settings win.
+        System.getProperties().putIfAbsent("server.port", "0");
+        System.getProperties().putIfAbsent("spring.jpa.show-sql", "false");
+        System.getProperties().putIfAbsent("logging.level.com.att.tdp.popcorn_palace", "WARN");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PopcornPalaceApplication.class)
+                .run(args);
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            OnSaleLoadGenerator generator = new OnSaleLoadGenerator("http://localhost:" + port);
+            long movieId = generator.createMovie();
+            List<Long> showtimeIds = generator.setUp(movieId, showtimes);
+            System.out.printf("%nProfile %s: %d requests, concurrency %d, %d showtimes x %d seats, hot share %.2f, "
+                            + "virtual threads %s%n", rush ? "rush" : "steady", requests, concurrency, showtimes, seats,
+                    hotShare, context.getEnvironment().getProperty("spring.threads.virtual.enabled", "false"));
+            generator.run(requests, concurrency, movieId, showtimeIds, seats, hotShare, readShare, scheduleShare);
+        } finally {
+            context.close();
+        }
+    }
+
+    private long createMovie() throws Exception {
+        JsonNode movie = send("setup", post("/movies", Map.of("title", "Blockbuster " + System.nanoTime(),
+                "genre", "Action", "duration", 150, "rating", 8.5, "releaseYear", 2025)));
+        return movie.get("id").asLong();
+    }
+
+    private List<Long> setUp(long movieId, int showtimes) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+        for (int i = 0; i < showtimes; i++) {
+            JsonNode showtime = send("setup", post("/showtimes", Map.of("movieId", movieId,
+                    "theater", "Hall " + i, "price", 15.0,
+                    "startTime", start.toString(), "endTime", start.plusHours(3).toString())));
+            ids.add(showtime.get("id").asLong());
+        }
+        stats.clear();
+        return ids;
+    }
+
+    private void run(int requests, int concurrency, long movieId, List<Long> showtimeIds, int seats,
+                     double hotShare, double readShare, double scheduleShare) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicInteger scheduled = new AtomicInteger();
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                executor.submit(() -> {
+                    try {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        double op = random.nextDouble();
+                        if (op < scheduleShare) {
+                            // New showtimes land at random hours, so some of them overlap and are rejected.
+                            LocalDateTime start = LocalDateTime.now().plusDays(2).truncatedTo(ChronoUnit.HOURS)
+                                    .plusHours(random.nextInt(24 * 14));
+                            send("POST /showtimes", post("/showtimes", Map.of("movieId", movieId,
+                                    "theater", "Hall " + random.nextInt(showtimeIds.size()), "price", 15.0,
+                                    "startTime", start.toString(), "endTime", start.plusHours(2).toString())));
+                            scheduled.incrementAndGet();
+                        } else if (op < scheduleShare + readShare) {
+                            Long id = showtimeIds.get(random.nextInt(showtimeIds.size()));
+                            send("GET /showtimes/{id}", HttpRequest.newBuilder(URI.create(baseUrl + "/showtimes/" + id))
+                                    .GET().build());
+                        } else {
+                            Long id = random.nextDouble() < hotShare ? showtimeIds.get(0)
+                                    : showtimeIds.get(random.nextInt(showtimeIds.size()));
+                            send("POST /bookings", post("/bookings", Map.of("showtimeId", id,
+                                    "seatNumber", random.nextInt(seats), "userId", "user-" + random.nextInt(1_000_000))));
+                        }
+                    } catch (Exception e) {
+                        record("errors", 0, -1);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        report(seconds);
+    }
+
+    private HttpRequest post(String path, Map<String, Object> body) throws Exception {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private JsonNode send(String endpoint, HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        record(endpoint, System.nanoTime() - start, response.statusCode());
+        return response.statusCode() == 200 && !response.body().isEmpty() ? MAPPER.readTree(response.body()) : null;
+    }
+
+    private void record(String endpoint, long nanos, int status) {
+        EndpointStats endpointStats;
+        synchronized (stats) {
+            endpointStats = stats.computeIfAbsent(endpoint, e -> new EndpointStats());
+        }
+        endpointStats.record(nanos, status);
+    }
+
+    private void report(double seconds) {
+        int total = stats.values().stream().mapToInt(EndpointStats::count).sum();
+        System.out.printf("%n%d requests in %.2f s: %.0f req/s%n", total, seconds, total / seconds);
+        System.out.printf("%-22s %8s %10s %10s %10s  %s%n", "endpoint", "count", "req/s", "p50 ms", "p99 ms", "statuses");
+        stats.forEach((endpoint, s) -> System.out.printf("%-22s %8d %10.0f %10.2f %10.2f  %s%n",
+                endpoint, s.count(), s.count() / seconds, s.percentile(0.50), s.percentile(0.99), s.statuses()));
+        EndpointStats bookings = stats.get("POST /bookings");
+        if (bookings != null) {
+            System.out.printf("Seat conflict rate: %.1f%% of booking attempts%n",
+                    100.0 * bookings.statuses().getOrDefault(400, 0) / bookings.count());
+        }
+    }
+
+    /**
+     * Latencies and status codes of one endpoint.
+     */
+    private static class EndpointStats {
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        synchronized void record(long nanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized double percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.ceil(quantile * count) - 1)] / 1e6;
+        }
+
+        synchronized Map<Integer, Integer> statuses() {
+            return new TreeMap<>(statuses);
+        }
+    }
+}